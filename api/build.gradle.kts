@@ -5,6 +5,7 @@ plugins {
     `java-library`
     `maven-publish`
     id("net.kyori.blossom") version "1.2.0"
+    id("me.champeau.jmh") version "0.7.2"
 
 }
 
@@ -43,6 +44,14 @@ java {
     withSourcesJar()
 }
 
+// ./gradlew :RedisBungee-API:jmh, the gc profiler reports the bytes allocated per operation
+jmh {
+    profilers.add("gc")
+    fork.set(1)
+    warmupIterations.set(3)
+    iterations.set(5)
+}
+
 tasks {
     // thanks again for paper too
     withType<Javadoc> {
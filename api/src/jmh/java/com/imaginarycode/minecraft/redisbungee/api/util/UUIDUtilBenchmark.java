@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.util;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.nio.charset.StandardCharsets;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Encoding and decoding a whole online players set in both member forms,
+ * run with the gc profiler to compare the bytes allocated per set.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class UUIDUtilBenchmark {
+
+    @Param({"1000", "20000"})
+    private int players;
+
+    private UUID[] uuids;
+    private byte[][] stringMembers;
+    private byte[][] binaryMembers;
+
+    @Setup
+    public void setup() {
+        uuids = new UUID[players];
+        stringMembers = new byte[players][];
+        binaryMembers = new byte[players][];
+        for (int i = 0; i < players; i++) {
+            uuids[i] = UUID.randomUUID();
+            stringMembers[i] = UUIDUtil.toStringBytes(uuids[i]);
+            binaryMembers[i] = UUIDUtil.toBytes(uuids[i]);
+        }
+    }
+
+    @Benchmark
+    public void encodeString(Blackhole blackhole) {
+        for (UUID uuid : uuids) {
+            blackhole.consume(UUIDUtil.toStringBytes(uuid));
+        }
+    }
+
+    @Benchmark
+    public void encodeBinary(Blackhole blackhole) {
+        for (UUID uuid : uuids) {
+            blackhole.consume(UUIDUtil.toBytes(uuid));
+        }
+    }
+
+    // what proxies older than 0.13.0 do for every member
+    @Benchmark
+    public void decodeString(Blackhole blackhole) {
+        for (byte[] member : stringMembers) {
+            blackhole.consume(UUID.fromString(new String(member, StandardCharsets.US_ASCII)));
+        }
+    }
+
+    @Benchmark
+    public void decodeBinary(Blackhole blackhole) {
+        for (byte[] member : binaryMembers) {
+            blackhole.consume(UUIDUtil.fromMember(member));
+        }
+    }
+
+}
@@ -10,10 +10,13 @@
 
 package com.imaginarycode.minecraft.redisbungee;
 
+import com.google.common.collect.ImmutableMap;
 import com.google.common.collect.ImmutableSet;
 import com.google.common.collect.Multimap;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeeMode;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.Summoner;
 import net.kyori.adventure.text.Component;
 import org.checkerframework.checker.nullness.qual.NonNull;
@@ -34,6 +37,7 @@ import java.util.*;
 public abstract class AbstractRedisBungeeAPI {
     protected final RedisBungeePlugin<?> plugin;
     private static AbstractRedisBungeeAPI abstractRedisBungeeAPI;
+    private final AsyncRedisBungeeAPI asyncRedisBungeeAPI;
 
     public AbstractRedisBungeeAPI(RedisBungeePlugin<?> plugin) {
         // this does make sure that no one can replace first initiated API class.
@@ -41,6 +45,18 @@ public abstract class AbstractRedisBungeeAPI {
             abstractRedisBungeeAPI = this;
         }
         this.plugin = plugin;
+        this.asyncRedisBungeeAPI = new AsyncRedisBungeeAPI(this);
+    }
+
+    /**
+     * Get the non-blocking variant of this api, its methods return {@link java.util.concurrent.CompletableFuture}s
+     * and never block the calling thread on Redis.
+     *
+     * @return the {@link AsyncRedisBungeeAPI}
+     * @since 0.13.0
+     */
+    public final AsyncRedisBungeeAPI async() {
+        return this.asyncRedisBungeeAPI;
     }
 
     /**
@@ -75,6 +91,22 @@ public abstract class AbstractRedisBungeeAPI {
         return plugin.playerDataManager().getServerFor(player);
     }
 
+    /**
+     * Bulk variant of {@link #getServerNameFor(UUID)}, players that are not cached locally
+     * are fetched from Redis in a single pipeline.
+     *
+     * @param players player uuids
+     * @return an immutable map of player uuid to server name, players that are not on a server are not contained
+     * @since 0.13.0
+     */
+    public final Map<UUID, String> getServerNamesFor(@NonNull Collection<UUID> players) {
+        ImmutableMap.Builder<UUID, String> builder = ImmutableMap.builder();
+        plugin.playerDataManager().getPlayerRecords(players).forEach((uuid, record) -> {
+            if (record.server() != null) builder.put(uuid, record.server());
+        });
+        return builder.build();
+    }
+
     /**
      * Get a combined list of players on this network.
      * <p>
@@ -163,6 +195,22 @@ public abstract class AbstractRedisBungeeAPI {
         return plugin.playerDataManager().getProxyFor(player);
     }
 
+    /**
+     * Bulk variant of {@link #getProxy(UUID)}, players that are not cached locally
+     * are fetched from Redis in a single pipeline.
+     *
+     * @param players player uuids
+     * @return an immutable map of player uuid to proxy id, offline players are not contained
+     * @since 0.13.0
+     */
+    public final Map<UUID, String> getProxiesFor(@NonNull Collection<UUID> players) {
+        ImmutableMap.Builder<UUID, String> builder = ImmutableMap.builder();
+        plugin.playerDataManager().getPlayerRecords(players).forEach((uuid, record) -> {
+            if (record.proxy() != null) builder.put(uuid, record.proxy());
+        });
+        return builder.build();
+    }
+
     /**
      * Sends a proxy command to all proxies.
      *
@@ -200,6 +248,29 @@ public abstract class AbstractRedisBungeeAPI {
         plugin.proxyDataManager().sendChannelMessage(channel, message);
     }
 
+    /**
+     * Get the registry of payload types sent over the RedisBungee stream,
+     * plugins can register their own types to send compact messages between proxies.
+     *
+     * @return the {@link PayloadRegistry} of this proxy
+     * @see #sendPayload(AbstractPayload)
+     * @since 0.13.0
+     */
+    public final PayloadRegistry getPayloadRegistry() {
+        return plugin.proxyDataManager().payloadRegistry();
+    }
+
+    /**
+     * Sends a payload to all proxies, the payload type must be registered in {@link #getPayloadRegistry()}
+     * and its sender proxy must be {@link #getProxyId()}.
+     *
+     * @param payload the payload to send
+     * @since 0.13.0
+     */
+    public final void sendPayload(@NonNull AbstractPayload payload) {
+        plugin.proxyDataManager().sendPayload(payload);
+    }
+
     /**
      * Get the current BungeeCord / Velocity proxy ID for this server.
      *
@@ -255,6 +326,19 @@ public abstract class AbstractRedisBungeeAPI {
         return plugin.getUuidTranslator().getNameFromUuid(uuid, expensiveLookups);
     }
 
+    /**
+     * Bulk variant of {@link #getNameFromUuid(UUID, boolean)}, names that are not cached locally
+     * are fetched from Redis with a single {@code HMGET}.
+     *
+     * @param uuids            the UUIDs to fetch the names for
+     * @param expensiveLookups whether or not to perform potentially expensive lookups
+     * @return a map of UUID to name, UUIDs without a known name are not contained
+     * @since 0.13.0
+     */
+    public final Map<UUID, String> getNamesFromUuids(@NonNull Collection<UUID> uuids, boolean expensiveLookups) {
+        return plugin.getUuidTranslator().getNamesFromUuids(uuids, expensiveLookups);
+    }
+
     /**
      * Fetch a UUID from the specified name. Names are cached locally and in Redis. This function falls back to Mojang
      * as a last resort, so calls <strong>may</strong> be blocking.
@@ -289,6 +373,19 @@ public abstract class AbstractRedisBungeeAPI {
         return plugin.getUuidTranslator().getTranslatedUuid(name, expensiveLookups);
     }
 
+    /**
+     * Bulk variant of {@link #getUuidFromName(String, boolean)}, UUIDs that are not cached locally
+     * are fetched from Redis with a single {@code HMGET}, and from Mojang in batches of 100 names if {@code expensiveLookups} is true.
+     *
+     * @param names            the names to fetch the UUIDs for
+     * @param expensiveLookups whether or not to perform potentially expensive lookups
+     * @return a map of name (as given) to UUID, names without a known UUID are not contained
+     * @since 0.13.0
+     */
+    public final Map<String, UUID> getUuidsFromNames(@NonNull Collection<String> names, boolean expensiveLookups) {
+        return plugin.getUuidTranslator().getTranslatedUuids(names, expensiveLookups);
+    }
+
     /**
      * Kicks a player from the network
      * calls {@link #getUuidFromName(String)} to get uuid
@@ -314,7 +411,7 @@ public abstract class AbstractRedisBungeeAPI {
     }
 
     /**
-     * returns Summoner class responsible for Single Jedis {@link redis.clients.jedis.JedisPooled} with {@link JedisPool}, Cluster Jedis {@link redis.clients.jedis.JedisCluster} handling
+     * returns Summoner class responsible for Single Jedis {@link redis.clients.jedis.JedisPooled} with {@link JedisPool}, Cluster Jedis {@link redis.clients.jedis.JedisCluster}, Sentinel Jedis {@link redis.clients.jedis.JedisSentineled} handling
      *
      * @return {@link Summoner}
      * @since 0.8.0
@@ -338,21 +435,27 @@ public abstract class AbstractRedisBungeeAPI {
         return abstractRedisBungeeAPI;
     }
 
-    @Deprecated(forRemoval = true)
+    /**
+     * Register (a) PubSub channel(s), so that you may handle PubSubMessageEvent for it.
+     * <p>
+     * Only required when stream sharding is enabled, messages of channels that are not registered
+     * on this proxy are then not delivered.
+     *
+     * @param channels the channels to register
+     * @since 0.3
+     */
     public void registerPubSubChannels(String... channels) {
+        plugin.proxyDataManager().registerChannels(channels);
     }
 
     /**
-     * Warning: this is Legacy API to maintain backward compatibility with RedisBungee Pre fork 0.5
-     * <p>
-     *  Unregister (a) PubSub channel(s).
+     * Unregister (a) PubSub channel(s).
      *
      * @param channels the channels to unregister
      * @since 0.3
-     * @deprecated No longer required
      */
-    @Deprecated(forRemoval = true)
     public void unregisterPubSubChannels(String... channels) {
+        plugin.proxyDataManager().unregisterChannels(channels);
     }
 
 }
@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Multimap;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import org.checkerframework.checker.nullness.qual.NonNull;
+
+import java.net.InetAddress;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Non-blocking variant of {@link AbstractRedisBungeeAPI}, safe to call from proxy event threads.
+ * <p>
+ * Lookups run on a dedicated bounded thread pool, or on virtual threads when running on Java 21 or newer.
+ * Concurrent calls for the same lookup share a single in-flight Redis call.
+ * When the pool queue is full the returned future completes exceptionally with a {@link RejectedExecutionException}.
+ * <p>
+ * Obtain an instance with {@link AbstractRedisBungeeAPI#async()}.
+ *
+ * @since 0.13.0
+ */
+public class AsyncRedisBungeeAPI {
+
+    private static final int QUEUE_SIZE = 4096;
+
+    private record LookupKey(String operation, Object argument) {
+
+    }
+
+    private final AbstractRedisBungeeAPI api;
+    private final ExecutorService executor;
+    private final ConcurrentHashMap<LookupKey, CompletableFuture<?>> inFlight = new ConcurrentHashMap<>();
+
+    AsyncRedisBungeeAPI(AbstractRedisBungeeAPI api) {
+        this.api = api;
+        this.executor = createExecutor();
+    }
+
+    private static ExecutorService createExecutor() {
+        try {
+            // Java 21+, compiled against 17 so it has to be looked up
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException ignored) {
+        }
+        int threads = Math.max(4, Runtime.getRuntime().availableProcessors() * 2);
+        AtomicInteger counter = new AtomicInteger();
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS, new ArrayBlockingQueue<>(QUEUE_SIZE), runnable -> {
+            Thread thread = new Thread(runnable, "RedisBungee-Async-API-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    private <T> CompletableFuture<T> supply(Supplier<T> supplier) {
+        try {
+            return CompletableFuture.supplyAsync(supplier, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> CompletableFuture<T> coalesce(String operation, Object argument, Supplier<T> supplier) {
+        LookupKey key = new LookupKey(operation, argument);
+        CompletableFuture<T> future = new CompletableFuture<>();
+        CompletableFuture<T> existing = (CompletableFuture<T>) inFlight.putIfAbsent(key, future);
+        if (existing != null) {
+            return existing;
+        }
+        supply(supplier).whenComplete((result, throwable) -> {
+            inFlight.remove(key, future);
+            if (throwable != null) {
+                future.completeExceptionally(throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable);
+            } else {
+                future.complete(result);
+            }
+        });
+        return future;
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getLastOnline(UUID)
+     */
+    public final CompletableFuture<Long> getLastOnline(@NonNull UUID player) {
+        return coalesce("last-online", player, () -> api.getLastOnline(player));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getServerNameFor(UUID)
+     */
+    public final CompletableFuture<String> getServerNameFor(@NonNull UUID player) {
+        return coalesce("server", player, () -> api.getServerNameFor(player));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getServerNamesFor(Collection)
+     */
+    public final CompletableFuture<Map<UUID, String>> getServerNamesFor(@NonNull Collection<UUID> players) {
+        List<UUID> copy = ImmutableList.copyOf(players);
+        return coalesce("servers", copy, () -> api.getServerNamesFor(copy));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getPlayersOnline()
+     */
+    public final CompletableFuture<Set<UUID>> getPlayersOnline() {
+        return coalesce("players-online", null, api::getPlayersOnline);
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getHumanPlayersOnline()
+     */
+    public final CompletableFuture<Collection<String>> getHumanPlayersOnline() {
+        return coalesce("human-players-online", null, api::getHumanPlayersOnline);
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getServerToPlayers()
+     */
+    public final CompletableFuture<Multimap<String, UUID>> getServerToPlayers() {
+        return coalesce("server-to-players", null, api::getServerToPlayers);
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getPlayersOnServer(String)
+     */
+    public final CompletableFuture<Set<UUID>> getPlayersOnServer(@NonNull String server) {
+        return coalesce("players-on-server", server, () -> api.getPlayersOnServer(server));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getPlayersOnProxy(String)
+     */
+    public final CompletableFuture<Set<UUID>> getPlayersOnProxy(@NonNull String proxyID) {
+        return coalesce("players-on-proxy", proxyID, () -> api.getPlayersOnProxy(proxyID));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#isPlayerOnline(UUID)
+     */
+    public final CompletableFuture<Boolean> isPlayerOnline(@NonNull UUID player) {
+        return getLastOnline(player).thenApply(lastOnline -> lastOnline == 0);
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getPlayerIp(UUID)
+     */
+    public final CompletableFuture<InetAddress> getPlayerIp(@NonNull UUID player) {
+        return coalesce("ip", player, () -> api.getPlayerIp(player));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getProxy(UUID)
+     */
+    public final CompletableFuture<String> getProxy(@NonNull UUID player) {
+        return coalesce("proxy", player, () -> api.getProxy(player));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getProxiesFor(Collection)
+     */
+    public final CompletableFuture<Map<UUID, String>> getProxiesFor(@NonNull Collection<UUID> players) {
+        List<UUID> copy = ImmutableList.copyOf(players);
+        return coalesce("proxies", copy, () -> api.getProxiesFor(copy));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getNameFromUuid(UUID, boolean)
+     */
+    public final CompletableFuture<String> getNameFromUuid(@NonNull UUID uuid, boolean expensiveLookups) {
+        return coalesce(expensiveLookups ? "name-expensive" : "name", uuid, () -> api.getNameFromUuid(uuid, expensiveLookups));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getNamesFromUuids(Collection, boolean)
+     */
+    public final CompletableFuture<Map<UUID, String>> getNamesFromUuids(@NonNull Collection<UUID> uuids, boolean expensiveLookups) {
+        List<UUID> copy = ImmutableList.copyOf(uuids);
+        return coalesce(expensiveLookups ? "names-expensive" : "names", copy, () -> api.getNamesFromUuids(copy, expensiveLookups));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getUuidFromName(String, boolean)
+     */
+    public final CompletableFuture<UUID> getUuidFromName(@NonNull String name, boolean expensiveLookups) {
+        return coalesce(expensiveLookups ? "uuid-expensive" : "uuid", name.toLowerCase(), () -> api.getUuidFromName(name, expensiveLookups));
+    }
+
+    /**
+     * @see AbstractRedisBungeeAPI#getUuidsFromNames(Collection, boolean)
+     */
+    public final CompletableFuture<Map<String, UUID>> getUuidsFromNames(@NonNull Collection<String> names, boolean expensiveLookups) {
+        List<String> copy = ImmutableList.copyOf(names);
+        return coalesce(expensiveLookups ? "uuids-expensive" : "uuids", copy, () -> api.getUuidsFromNames(copy, expensiveLookups));
+    }
+
+    /**
+     * Completes once the command was written to the network stream.
+     *
+     * @see AbstractRedisBungeeAPI#sendProxyCommand(String, String)
+     */
+    public final CompletableFuture<Void> sendProxyCommand(@NonNull String proxyId, @NonNull String command) {
+        return api.plugin.proxyDataManager().sendCommandTo(proxyId, command);
+    }
+
+    /**
+     * Completes once the message was written to the network stream.
+     *
+     * @see AbstractRedisBungeeAPI#sendChannelMessage(String, String)
+     */
+    public final CompletableFuture<Void> sendChannelMessage(@NonNull String channel, @NonNull String message) {
+        return api.plugin.proxyDataManager().sendChannelMessage(channel, message);
+    }
+
+    /**
+     * Completes once the payload was written to the network stream.
+     *
+     * @see AbstractRedisBungeeAPI#sendPayload(AbstractPayload)
+     */
+    public final CompletableFuture<Void> sendPayload(@NonNull AbstractPayload payload) {
+        return api.plugin.proxyDataManager().sendPayload(payload);
+    }
+
+    // called by the platform on shutdown
+    public void close() {
+        this.executor.shutdown();
+        try {
+            if (!this.executor.awaitTermination(5, TimeUnit.SECONDS)) {
+                this.executor.shutdownNow();
+            }
+        } catch (InterruptedException e) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
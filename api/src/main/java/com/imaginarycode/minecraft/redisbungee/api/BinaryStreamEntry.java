@@ -0,0 +1,88 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Stream entry read through the binary stream commands, so payload fields reach the codecs byte for byte.
+ * Jedis returns the raw replies of these commands, they are parsed here.
+ *
+ * @param fields field values, null for entries trimmed by MAXLEN while they were pending
+ */
+record BinaryStreamEntry(StreamEntryID id, Map<String, byte[]> fields) {
+
+    static Map<byte[], byte[]> toJedis(Map<String, byte[]> fields) {
+        Map<byte[], byte[]> hash = new LinkedHashMap<>(fields.size());
+        fields.forEach((field, value) -> hash.put(SafeEncoder.encode(field), value));
+        return hash;
+    }
+
+    // field value pairs, as passed to the redis functions
+    static List<byte[]> flatten(Map<String, byte[]> fields) {
+        List<byte[]> pairs = new ArrayList<>(fields.size() * 2);
+        fields.forEach((field, value) -> {
+            pairs.add(SafeEncoder.encode(field));
+            pairs.add(value);
+        });
+        return pairs;
+    }
+
+    @SuppressWarnings("unchecked")
+    static Map.Entry<byte[], byte[]>[] offsets(Map<String, StreamEntryID> offsets) {
+        List<Map.Entry<byte[], byte[]>> entries = new ArrayList<>(offsets.size());
+        offsets.forEach((stream, id) -> entries.add(new AbstractMap.SimpleImmutableEntry<>(SafeEncoder.encode(stream), SafeEncoder.encode(id.toString()))));
+        return entries.toArray(new Map.Entry[0]);
+    }
+
+    // XREAD and XREADGROUP reply, null when the block timed out
+    static Map<String, List<BinaryStreamEntry>> fromRead(List<?> reply) {
+        Map<String, List<BinaryStreamEntry>> streams = new LinkedHashMap<>();
+        if (reply == null) return streams;
+        for (Object stream : reply) {
+            List<?> streamReply = (List<?>) stream;
+            streams.put(SafeEncoder.encode((byte[]) streamReply.get(0)), fromEntries(streamReply.get(1)));
+        }
+        return streams;
+    }
+
+    // entries of a read reply, or the second element of an XAUTOCLAIM reply
+    static List<BinaryStreamEntry> fromEntries(Object reply) {
+        List<?> entriesReply = (List<?>) reply;
+        List<BinaryStreamEntry> entries = new ArrayList<>(entriesReply.size());
+        for (Object entry : entriesReply) {
+            // deleted entries claimed on redis 6.2
+            if (entry == null) continue;
+            List<?> entryReply = (List<?>) entry;
+            StreamEntryID id = new StreamEntryID(SafeEncoder.encode((byte[]) entryReply.get(0)));
+            Map<String, byte[]> fields = null;
+            if (entryReply.size() > 1 && entryReply.get(1) != null) {
+                List<?> pairs = (List<?>) entryReply.get(1);
+                fields = new HashMap<>();
+                for (int i = 0; i + 1 < pairs.size(); i += 2) {
+                    fields.put(SafeEncoder.encode((byte[]) pairs.get(i)), (byte[]) pairs.get(i + 1));
+                }
+            }
+            entries.add(new BinaryStreamEntry(id, fields));
+        }
+        return entries;
+    }
+
+}
@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.imaginarycode.minecraft.redisbungee.api.util.uuid.CachedUUIDEntry;
+import com.imaginarycode.minecraft.redisbungee.api.util.uuid.UUIDTranslator;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisException;
+
+import java.util.UUID;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Server assisted client side caching, redis tracks the uuid cache and player data keys in broadcasting mode
+ * and sends every key that changed to this listener, which drops it from the local caches.
+ * The invalidations arrive on a connection outside the pool subscribed to {@code __redis__:invalidate},
+ * everything cached locally is dropped whenever that connection is established again since changes may have been missed.
+ */
+public class InvalidationListener implements Runnable {
+
+    private static final String CHANNEL = "__redis__:invalidate";
+    private static final long PING_INTERVAL = TimeUnit.SECONDS.toMillis(15);
+
+    private final RedisBungeePlugin<?> plugin;
+    private final RedisKeys redisKeys;
+    private final Consumer<UUID> invalidatePlayer;
+    private final Runnable invalidatePlayers;
+    private final Thread thread;
+    private final ScheduledExecutorService pinger;
+    private volatile boolean closed = false;
+    private volatile Jedis client;
+    private volatile JedisPubSub subscriber;
+    private volatile long lastPong;
+
+    public InvalidationListener(RedisBungeePlugin<?> plugin, RedisKeys redisKeys, Consumer<UUID> invalidatePlayer, Runnable invalidatePlayers) {
+        this.plugin = plugin;
+        this.redisKeys = redisKeys;
+        this.invalidatePlayer = invalidatePlayer;
+        this.invalidatePlayers = invalidatePlayers;
+        this.thread = new Thread(this, "RedisBungee-Invalidation-Listener");
+        this.thread.setDaemon(true);
+        this.pinger = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread pingThread = new Thread(runnable, "RedisBungee-Invalidation-Ping");
+            pingThread.setDaemon(true);
+            return pingThread;
+        });
+        this.thread.start();
+        this.pinger.scheduleWithFixedDelay(this::ping, PING_INTERVAL, PING_INTERVAL, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public void run() {
+        while (!closed) {
+            try (Jedis jedis = plugin.getSummoner().newPrimaryClient()) {
+                if (jedis == null) {
+                    plugin.logWarn("Client side caching is not supported in {} mode", plugin.getRedisBungeeMode());
+                    return;
+                }
+                this.client = jedis;
+                if (closed) return;
+                // the connection receives the invalidations of its own tracking
+                jedis.sendCommand(Protocol.Command.CLIENT, "TRACKING", "ON", "REDIRECT", String.valueOf(jedis.clientId()), "BCAST",
+                        "PREFIX", CachedUUIDEntry.KEY_PREFIX, "PREFIX", redisKeys.playerDataPrefix());
+                JedisPubSub subscriber = new Subscriber();
+                this.subscriber = subscriber;
+                jedis.subscribe(subscriber, CHANNEL);
+            } catch (JedisDataException e) {
+                plugin.logWarn("Client side caching is disabled, redis refused to track keys (requires Redis 6): {}", e.getMessage());
+                return;
+            } catch (JedisException e) {
+                if (closed) return;
+                plugin.logWarn("Lost the cache invalidation connection, reconnecting: {}", e.getMessage());
+            } finally {
+                this.subscriber = null;
+                this.client = null;
+            }
+            invalidateAll();
+            try {
+                Thread.sleep(1000);
+            } catch (InterruptedException e) {
+                return;
+            }
+        }
+    }
+
+    // subscribe only notices a dead connection once the socket fails, unanswered pings close it sooner
+    private void ping() {
+        Jedis client = this.client;
+        JedisPubSub subscriber = this.subscriber;
+        if (client == null || subscriber == null || !subscriber.isSubscribed()) return;
+        try {
+            if (System.currentTimeMillis() - lastPong > PING_INTERVAL * 3) {
+                client.disconnect();
+            } else {
+                subscriber.ping();
+            }
+        } catch (JedisException e) {
+            client.disconnect();
+        }
+    }
+
+    private void invalidate(String key) {
+        if (key.startsWith(CachedUUIDEntry.KEY_PREFIX)) {
+            UUIDTranslator translator = plugin.getUuidTranslator();
+            if (translator != null) translator.invalidate(key);
+            return;
+        }
+        UUID uuid = redisKeys.playerOfDataKey(key);
+        if (uuid != null) invalidatePlayer.accept(uuid);
+    }
+
+    private void invalidateAll() {
+        UUIDTranslator translator = plugin.getUuidTranslator();
+        if (translator != null) translator.invalidateAll();
+        invalidatePlayers.run();
+    }
+
+    public void close() {
+        this.closed = true;
+        this.pinger.shutdownNow();
+        Jedis client = this.client;
+        if (client != null) {
+            try {
+                client.disconnect();
+            } catch (JedisException ignored) {
+            }
+        }
+        this.thread.interrupt();
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private class Subscriber extends JedisPubSub {
+
+        @Override
+        public void onSubscribe(String channel, int subscribedChannels) {
+            lastPong = System.currentTimeMillis();
+            // anything cached before tracking started may be outdated
+            invalidateAll();
+        }
+
+        @Override
+        public void onMessage(String channel, String key) {
+            // flushing the database is sent without keys
+            if (key == null) {
+                invalidateAll();
+            } else {
+                invalidate(key);
+            }
+        }
+
+        @Override
+        public void onPong(String pattern) {
+            lastPong = System.currentTimeMillis();
+        }
+    }
+
+}
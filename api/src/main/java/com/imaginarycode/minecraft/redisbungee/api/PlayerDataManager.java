@@ -10,51 +10,132 @@
 
 package com.imaginarycode.minecraft.redisbungee.api;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.CacheLoader;
 import com.github.benmanes.caffeine.cache.Caffeine;
 import com.github.benmanes.caffeine.cache.LoadingCache;
 import com.google.common.collect.ImmutableMultimap;
 import com.google.common.collect.Multimap;
-import com.google.common.net.InetAddresses;
+import com.imaginarycode.minecraft.redisbungee.api.config.RedisBungeeConfiguration;
 import com.imaginarycode.minecraft.redisbungee.api.events.IPlayerChangedServerNetworkEvent;
 import com.imaginarycode.minecraft.redisbungee.api.events.IPlayerJoinedNetworkEvent;
 import com.imaginarycode.minecraft.redisbungee.api.events.IPlayerLeftNetworkEvent;
 import com.imaginarycode.minecraft.redisbungee.api.events.IPubSubMessageEvent;
 import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisPipelineTask;
+import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisTask;
+import com.imaginarycode.minecraft.redisbungee.api.util.RedisFunctions;
+import com.imaginarycode.minecraft.redisbungee.api.util.UUIDUtil;
+import com.imaginarycode.minecraft.redisbungee.api.util.uuid.CachedUUIDEntry;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.serializer.json.JSONComponentSerializer;
 import org.json.JSONObject;
 import redis.clients.jedis.ClusterPipeline;
 import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
 import redis.clients.jedis.Response;
 import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.net.InetAddress;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
 
 public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEvent, SC extends IPlayerChangedServerNetworkEvent, NJE extends IPlayerLeftNetworkEvent, CE, PJN extends IPlayerJoinedNetworkEvent> {
 
     protected final RedisBungeePlugin<P> plugin;
-    private final Object SERVERS_TO_PLAYERS_KEY = new Object();
     private final UnifiedJedis unifiedJedis;
     private final String proxyId;
-    private final String networkId;
-    private final LoadingCache<UUID, String> serverCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(this::getServerFromRedis);
-    private final LoadingCache<UUID, String> lastServerCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(this::getLastServerFromRedis);
-    private final LoadingCache<UUID, String> proxyCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(this::getProxyFromRedis);
-    private final LoadingCache<UUID, InetAddress> ipCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(this::getIpAddressFromRedis);
-    private final LoadingCache<UUID, Long> lastOnlineCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(this::getLastOnlineFromRedis);
-    private final LoadingCache<Object, Multimap<String, UUID>> serverToPlayersCache = Caffeine.newBuilder().expireAfterWrite(10, TimeUnit.MINUTES).build(this::serversToPlayersBuilder);
+    private final RedisKeys redisKeys;
+    private final LoadingCache<UUID, PlayerRecord> playerRecordCache = Caffeine.newBuilder().expireAfterWrite(1, TimeUnit.HOURS).build(new CacheLoader<>() {
+        @Override
+        public PlayerRecord load(UUID uuid) {
+            return getPlayerRecordFromRedis(uuid, readFromReplica(uuid));
+        }
+
+        @Override
+        public Map<UUID, PlayerRecord> loadAll(Set<? extends UUID> uuids) {
+            Set<UUID> fromReplica = new HashSet<>();
+            Set<UUID> fromPrimary = new HashSet<>();
+            for (UUID uuid : uuids) {
+                (readFromReplica(uuid) ? fromReplica : fromPrimary).add(uuid);
+            }
+            Map<UUID, PlayerRecord> records = new HashMap<>();
+            if (!fromReplica.isEmpty()) records.putAll(getPlayerRecordsFromRedis(fromReplica, true));
+            if (!fromPrimary.isEmpty()) records.putAll(getPlayerRecordsFromRedis(fromPrimary, false));
+            return records;
+        }
+    });
+    // players whose data changed in the last seconds, read replicas may not have the change yet
+    // so their records are loaded from the primary instead of caching the old record for an hour
+    private static final long REPLICA_LAG_WINDOW = 5;
+    private final Cache<UUID, Boolean> recentlyChanged = Caffeine.newBuilder().expireAfterWrite(REPLICA_LAG_WINDOW, TimeUnit.SECONDS).build();
+    // uuid -> server of every player on the network, updated in-place by server change / quit events
+    private final ConcurrentHashMap<UUID, ServerEntry> playerServers = new ConcurrentHashMap<>();
+    // bumped after every change of playerServers, see ProxyDataManager#networkPlayers
+    private final AtomicLong serversVersion = new AtomicLong();
+
+    /**
+     * @param server  null once the player left or is on no server, kept until the next reconcile
+     *                so a snapshot fetched before the quit does not add the player back
+     * @param version serversVersion when it changed, the reconcile only replaces entries older than its snapshot
+     */
+    private record ServerEntry(String server, long version) {
+
+    }
+
+    private record ServersToPlayersSnapshot(long version, Multimap<String, UUID> players) {
+
+    }
+
+    private volatile ServersToPlayersSnapshot serversToPlayersSnapshot;
     private final JSONComponentSerializer COMPONENT_SERIALIZER = JSONComponentSerializer.json();
+    private volatile boolean functionsLoaded;
+    private final PlayerStateWriter stateWriter;
+    private final InvalidationListener invalidationListener;
+    // kicks of duplicate logins waiting for the old session to be gone
+    private final ConcurrentHashMap<UUID, CompletableFuture<Void>> pendingKicks = new ConcurrentHashMap<>();
+    private static final long KICK_ACK_TIMEOUT = 3;
+
+    /**
+     * @param lastOnline  0 when online, see {@link PlayerRecord#lastOnline()}
+     * @param proxy       proxy the player data points to, can be null
+     * @param onProxy     whether the online players set of that proxy contains the player
+     */
+    public record LoginState(long lastOnline, String proxy, boolean onProxy) {
+
+        // the player data can be left behind by a proxy that did not shut down correctly, so the proxy set is checked as well
+        public boolean onlineElsewhere() {
+            return lastOnline == 0 && proxy != null && onProxy;
+        }
+    }
 
     public PlayerDataManager(RedisBungeePlugin<P> plugin) {
         this.plugin = plugin;
         this.unifiedJedis = plugin.getSummoner().obtainResource();
         this.proxyId = plugin.proxyDataManager().proxyId();
-        this.networkId = plugin.proxyDataManager().networkId();
+        this.redisKeys = plugin.proxyDataManager().redisKeys();
+        this.functionsLoaded = RedisFunctions.load(plugin, this.unifiedJedis);
+        RedisBungeeConfiguration.PlayerStateWriterConfiguration writerConfiguration = plugin.configuration().playerStateWriterConfiguration();
+        this.stateWriter = new PlayerStateWriter(plugin, writerConfiguration.flushWindowMillis(), writerConfiguration.maxBatchSize(), this::reloadFunctions);
+        if (plugin.configuration().clientSideCaching()) {
+            this.invalidationListener = new InvalidationListener(plugin, this.redisKeys, this.playerRecordCache::invalidate, this.playerRecordCache::invalidateAll);
+        } else {
+            this.invalidationListener = null;
+        }
     }
 
     // handle network wide
@@ -75,35 +156,41 @@ public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEven
     public abstract void onDisconnectEvent(DE event);
 
     protected void handleNetworkPlayerServerChange(IPlayerChangedServerNetworkEvent event) {
-        this.serverCache.invalidate(event.getUuid());
-        this.lastServerCache.invalidate(event.getUuid());
+        invalidatePlayerRecord(event.getUuid());
 
-        //TODO: We could also rely on redisbungee-serverchange pubsub messages to update the cache in-place without querying redis. That would be a lot more efficient.
-        this.serverToPlayersCache.invalidate(SERVERS_TO_PLAYERS_KEY);
+        updatePlayerServer(event.getUuid(), event.getServer());
     }
 
     protected void handleNetworkPlayerQuit(IPlayerLeftNetworkEvent event) {
         // reason we don't set the data here because in-case of failure in redis etc,
         // events won't reach the proxy so data would be incorrect.
-        this.proxyCache.invalidate(event.getUuid());
-        this.serverCache.invalidate(event.getUuid());
-        this.ipCache.invalidate(event.getUuid());
-        this.lastOnlineCache.invalidate(event.getUuid());
+        invalidatePlayerRecord(event.getUuid());
+
+        updatePlayerServer(event.getUuid(), null);
+    }
 
-        //TODO: We could also rely on redisbungee-serverchange pubsub messages to update the cache in-place without querying redis. That would be a lot more efficient.
-        this.serverToPlayersCache.invalidate(SERVERS_TO_PLAYERS_KEY);
+    // the version is bumped after the entry is stored, so a snapshot never misses the change under the new version
+    private void updatePlayerServer(UUID uuid, String server) {
+        this.playerServers.put(uuid, new ServerEntry(server, this.serversVersion.get()));
+        this.serversVersion.incrementAndGet();
     }
 
     protected void handleNetworkPlayerJoin(IPlayerJoinedNetworkEvent event) {
         // reason we don't set the data here because in-case of failure in redis etc,
         // events won't reach the proxy so data would be incorrect.
-        this.proxyCache.invalidate(event.getUuid());
-        this.serverCache.invalidate(event.getUuid());
-        this.ipCache.invalidate(event.getUuid());
-        this.lastOnlineCache.invalidate(event.getUuid());
+        invalidatePlayerRecord(event.getUuid());
+        // joined players are not on a server yet, the index is updated by the following server change
+    }
+
+    // the record is reloaded from the primary for a few seconds, the change may not have reached the replicas yet
+    private void invalidatePlayerRecord(UUID uuid) {
+        this.recentlyChanged.put(uuid, Boolean.TRUE);
+        this.playerRecordCache.invalidate(uuid);
+    }
 
-        //TODO: We could also rely on redisbungee-serverchange pubsub messages to update the cache in-place without querying redis. That would be a lot more efficient.
-        this.serverToPlayersCache.invalidate(SERVERS_TO_PLAYERS_KEY);
+    // tracked keys are read from the primary, an invalidation can arrive before a replica has the change
+    private boolean readFromReplica(UUID uuid) {
+        return !plugin.configuration().clientSideCaching() && this.recentlyChanged.getIfPresent(uuid) == null;
     }
 
     protected void handlePubSubMessageEvent(IPubSubMessageEvent event) {
@@ -116,7 +203,22 @@ public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEven
             }
             UUID uuid = UUID.fromString(data.getString("uuid"));
             String message = data.getString("message");
-            plugin.handlePlatformKick(uuid, COMPONENT_SERIALIZER.deserialize(message));
+            boolean kicked = plugin.handlePlatformKick(uuid, COMPONENT_SERIALIZER.deserialize(message));
+            // the leave message acknowledges a successful kick, tell the sender right away when there was nothing to kick
+            if (!kicked && this.proxyId.equals(data.optString("target", null))) {
+                JSONObject ack = new JSONObject();
+                ack.put("proxy", this.proxyId);
+                ack.put("uuid", uuid);
+                plugin.proxyDataManager().sendChannelMessage("redisbungee-kick-ack", ack.toString());
+            }
+            return;
+        }
+        if (event.getChannel().equals("redisbungee-kick-ack")) {
+            JSONObject data = new JSONObject(event.getMessage());
+            if (data.getString("proxy").equals(this.proxyId)) {
+                return;
+            }
+            completePendingKick(UUID.fromString(data.getString("uuid")));
             return;
         }
         if (event.getChannel().equals("redisbungee-serverchange")) {
@@ -139,6 +241,7 @@ public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEven
                 return;
             }
             UUID uuid = UUID.fromString(data.getString("uuid"));
+            plugin.proxyDataManager().networkPlayerJoined(proxy, uuid);
             plugin.fireEvent(plugin.createPlayerJoinedNetworkEvent(uuid));
             return;
         }
@@ -149,6 +252,8 @@ public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEven
                 return;
             }
             UUID uuid = UUID.fromString(data.getString("uuid"));
+            plugin.proxyDataManager().networkPlayerLeft(proxy, uuid);
+            completePendingKick(uuid);
             plugin.fireEvent(plugin.createPlayerLeftNetworkEvent(uuid));
         }
 
@@ -160,139 +265,338 @@ public abstract class PlayerDataManager<P, LE, DE, PS extends IPubSubMessageEven
         data.put("uuid", uuid);
         data.put("from", from);
         data.put("to", to);
-        plugin.proxyDataManager().sendChannelMessage("redisbungee-serverchange", data.toString());
+        handleServerChangeRedis(uuid, to, data.toString());
+        plugin.fireEvent(plugin.createPubSubEvent("redisbungee-serverchange", data.toString()));
         plugin.fireEvent(plugin.createPlayerChangedServerNetworkEvent(uuid, from, to));
-        handleServerChangeRedis(uuid, to);
     }
 
     public void kickPlayer(UUID uuid, Component message) {
+        kickPlayer(uuid, message, null);
+    }
+
+    private void kickPlayer(UUID uuid, Component message, String target) {
         if (!plugin.handlePlatformKick(uuid, message)) { // handle locally before SENDING a message
             JSONObject data = new JSONObject();
             data.put("proxy", this.proxyId);
             data.put("uuid", uuid);
             data.put("message", COMPONENT_SERIALIZER.serialize(message));
+            if (target != null) data.put("target", target);
             plugin.proxyDataManager().sendChannelMessage("redisbungee-kick", data.toString());
         }
     }
 
-    private void handleServerChangeRedis(UUID uuid, String server) {
+    /**
+     * Kicks the player from the given proxy, the returned future completes when that proxy
+     * reported the player has left, or after 3 seconds when no answer came (older proxies don't acknowledge kicks).
+     */
+    public CompletableFuture<Void> kickAndAwait(UUID uuid, String proxy, Component message) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        CompletableFuture<Void> existing = this.pendingKicks.putIfAbsent(uuid, future);
+        if (existing != null) return existing;
+        future.completeOnTimeout(null, KICK_ACK_TIMEOUT, TimeUnit.SECONDS).whenComplete((ignored, throwable) -> this.pendingKicks.remove(uuid, future));
+        kickPlayer(uuid, message, proxy);
+        return future;
+    }
+
+    private void completePendingKick(UUID uuid) {
+        CompletableFuture<Void> future = this.pendingKicks.remove(uuid);
+        if (future != null) future.complete(null);
+    }
+
+    // last online, proxy and proxy set membership in one round trip
+    public LoginState checkLoginState(UUID uuid) {
+        final String dataKey = redisKeys.playerData(uuid);
+        if (this.functionsLoaded) {
+            // every key the function reads is declared, so the sets of all known proxies are passed
+            List<String> proxies = plugin.proxyDataManager().proxiesIds();
+            List<String> keys = new ArrayList<>(proxies.size() + 1);
+            keys.add(dataKey);
+            for (String proxy : proxies) {
+                keys.add(this.redisKeys.proxyMembers(proxy));
+            }
+            List<String> args = new ArrayList<>(proxies.size() + 1);
+            args.add(uuid.toString());
+            args.addAll(proxies);
+            try {
+                List<?> result = (List<?>) unifiedJedis.fcallReadonly(RedisFunctions.LOGIN_CHECK, keys, args);
+                String lastOnline = asString(result.get(0));
+                String proxy = asString(result.get(1));
+                long member = (Long) result.get(2);
+                // the proxy is not known here yet, e.g. right after start up, its set is checked separately
+                boolean onProxy = member == -1 ? plugin.proxyDataManager().isPlayerTrulyOnProxy(proxy, uuid) : member == 1;
+                return new LoginState(lastOnline == null ? -1 : Long.parseLong(lastOnline), proxy, onProxy);
+            } catch (JedisDataException e) {
+                if (!RedisFunctions.isMissing(e)) throw e;
+                reloadFunctions();
+            }
+        }
+        // two round trips, the proxy is needed to know which set to check
+        List<String> data = unifiedJedis.hmget(dataKey, "last-online", "proxy");
+        long lastOnline = data.get(0) == null ? -1 : Long.parseLong(data.get(0));
+        String proxy = data.get(1);
+        if (lastOnline != 0 || proxy == null) return new LoginState(lastOnline, proxy, false);
+        return new LoginState(lastOnline, proxy, plugin.proxyDataManager().isPlayerTrulyOnProxy(proxy, uuid));
+    }
+
+    private static String asString(Object value) {
+        if (value instanceof byte[] bytes) return SafeEncoder.encode(bytes);
+        return (String) value;
+    }
+
+    // the message is written after the player data and in order with the join and quit messages,
+    // so other proxies never reload the record before it changed
+    private void handleServerChangeRedis(UUID uuid, String server, String message) {
         Map<String, String> data = new HashMap<>();
         data.put("server", server);
         data.put("last-server", server);
-        unifiedJedis.hset("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", data);
+        final String dataKey = redisKeys.playerData(uuid);
+        final String streamId = plugin.proxyDataManager().streamTopology().playerStream();
+        final Map<String, byte[]> streamEntry = plugin.proxyDataManager().encodeChannelMessage("redisbungee-serverchange", message);
+        this.stateWriter.enqueue(pipeline -> List.of(
+                pipeline.hset(dataKey, data),
+                pipeline.xadd(SafeEncoder.encode(streamId), XAddParams.xAddParams().maxLen(ProxyDataManager.MAX_ENTRIES), BinaryStreamEntry.toJedis(streamEntry))));
     }
 
+    // data hash, uuid cache, stream entry and online set are written together by the state writer
     protected void addPlayer(final UUID uuid, final String name, final InetAddress inetAddress) {
+        final String dataKey = redisKeys.playerData(uuid);
+        final String membersKey = this.redisKeys.proxyMembers(this.proxyId);
+        final String streamId = plugin.proxyDataManager().streamTopology().playerStream();
+        final String cacheEntry = plugin.getUuidTranslator().cacheEntry(name, uuid).serialize();
+        final String nameKey = CachedUUIDEntry.nameKey(name);
+        final String uuidKey = CachedUUIDEntry.uuidKey(uuid);
+        JSONObject data = new JSONObject();
+        data.put("proxy", this.proxyId);
+        data.put("uuid", uuid);
+        final Map<String, byte[]> streamEntry = plugin.proxyDataManager().encodeChannelMessage("redisbungee-player-join", data.toString());
         Map<String, String> redisData = new HashMap<>();
         redisData.put("last-online", String.valueOf(0));
         redisData.put("proxy", this.proxyId);
         redisData.put("ip", inetAddress.getHostAddress());
-        unifiedJedis.hset("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", redisData);
-        plugin.getUuidTranslator().persistInfo(name, uuid, this.unifiedJedis);
-        JSONObject data = new JSONObject();
-        data.put("proxy", this.proxyId);
-        data.put("uuid", uuid);
-        plugin.proxyDataManager().sendChannelMessage("redisbungee-player-join", data.toString());
+        final byte[] member = plugin.proxyDataManager().proxyMember(uuid);
+        SetParams cacheParams = SetParams.setParams().px(CachedUUIDEntry.TTL);
+        Function<PipelineBase, List<Response<?>>> pipelineWrite = pipeline -> List.of(
+                pipeline.hset(dataKey, redisData),
+                pipeline.set(nameKey, cacheEntry, cacheParams),
+                pipeline.set(uuidKey, cacheEntry, cacheParams),
+                pipeline.xadd(SafeEncoder.encode(streamId), XAddParams.xAddParams().maxLen(ProxyDataManager.MAX_ENTRIES), BinaryStreamEntry.toJedis(streamEntry)),
+                pipeline.sadd(this.redisKeys.proxyMembersBytes(this.proxyId), member));
+        if (this.functionsLoaded) {
+            List<byte[]> args = new ArrayList<>();
+            args.add(member);
+            args.addAll(List.of(SafeEncoder.encodeMany(this.proxyId, inetAddress.getHostAddress(), cacheEntry, String.valueOf(CachedUUIDEntry.TTL), String.valueOf(ProxyDataManager.MAX_ENTRIES))));
+            args.addAll(BinaryStreamEntry.flatten(streamEntry));
+            List<byte[]> keys = List.of(SafeEncoder.encodeMany(dataKey, nameKey, uuidKey, streamId, membersKey));
+            this.stateWriter.enqueue(pipeline -> List.of(pipeline.fcall(SafeEncoder.encode(RedisFunctions.PLAYER_JOIN), keys, args)), pipelineWrite);
+        } else {
+            this.stateWriter.enqueue(pipelineWrite);
+        }
+        plugin.fireEvent(plugin.createPubSubEvent("redisbungee-player-join", data.toString()));
         plugin.fireEvent(plugin.createPlayerJoinedNetworkEvent(uuid));
-        this.plugin.proxyDataManager().addPlayer(uuid);
+        this.plugin.proxyDataManager().networkPlayerJoined(this.proxyId, uuid);
     }
 
     protected void removePlayer(UUID uuid) {
-        unifiedJedis.hset("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "last-online", String.valueOf(System.currentTimeMillis()));
-        unifiedJedis.hdel("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "server", "proxy", "ip");
+        final String dataKey = redisKeys.playerData(uuid);
+        final String membersKey = this.redisKeys.proxyMembers(this.proxyId);
+        final String streamId = plugin.proxyDataManager().streamTopology().playerStream();
+        final String lastOnline = String.valueOf(System.currentTimeMillis());
         JSONObject data = new JSONObject();
         data.put("proxy", this.proxyId);
         data.put("uuid", uuid);
-        plugin.proxyDataManager().sendChannelMessage("redisbungee-player-leave", data.toString());
+        final Map<String, byte[]> streamEntry = plugin.proxyDataManager().encodeChannelMessage("redisbungee-player-leave", data.toString());
+        Function<PipelineBase, List<Response<?>>> pipelineWrite = pipeline -> List.of(
+                pipeline.hset(dataKey, "last-online", lastOnline),
+                pipeline.hdel(dataKey, "server", "proxy", "ip"),
+                pipeline.xadd(SafeEncoder.encode(streamId), XAddParams.xAddParams().maxLen(ProxyDataManager.MAX_ENTRIES), BinaryStreamEntry.toJedis(streamEntry)),
+                pipeline.srem(this.redisKeys.proxyMembersBytes(this.proxyId), UUIDUtil.toBytes(uuid)),
+                // proxies older than 0.13.0 stored the uuid string
+                pipeline.srem(membersKey, uuid.toString()));
+        if (this.functionsLoaded) {
+            List<byte[]> args = new ArrayList<>(List.of(SafeEncoder.encodeMany(uuid.toString(), lastOnline, String.valueOf(ProxyDataManager.MAX_ENTRIES))));
+            args.addAll(BinaryStreamEntry.flatten(streamEntry));
+            List<byte[]> keys = List.of(SafeEncoder.encodeMany(dataKey, streamId, membersKey));
+            this.stateWriter.enqueue(pipeline -> List.of(pipeline.fcall(SafeEncoder.encode(RedisFunctions.PLAYER_QUIT), keys, args)), pipelineWrite);
+        } else {
+            this.stateWriter.enqueue(pipelineWrite);
+        }
+        plugin.fireEvent(plugin.createPubSubEvent("redisbungee-player-leave", data.toString()));
         plugin.fireEvent(plugin.createPlayerLeftNetworkEvent(uuid));
-        this.plugin.proxyDataManager().removePlayer(uuid);
+        this.plugin.proxyDataManager().networkPlayerLeft(this.proxyId, uuid);
+        completePendingKick(uuid);
     }
 
+    // called by the state writer after redis lost the functions, later writes use the pipelines if they can't be loaded again
+    private void reloadFunctions() {
+        this.functionsLoaded = RedisFunctions.load(plugin, this.unifiedJedis);
+    }
 
-    protected String getProxyFromRedis(UUID uuid) {
-        return unifiedJedis.hget("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "proxy");
+    public PlayerStateWriter.Stats stateWriterStats() {
+        return this.stateWriter.stats();
     }
 
-    protected String getServerFromRedis(UUID uuid) {
-        return unifiedJedis.hget("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "server");
+    // flushes pending player state writes
+    public void close() {
+        if (this.invalidationListener != null) this.invalidationListener.close();
+        this.stateWriter.close();
     }
 
-    protected String getLastServerFromRedis(UUID uuid) {
-        return unifiedJedis.hget("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "last-server");
+
+    protected PlayerRecord getPlayerRecordFromRedis(UUID uuid, boolean fromReplica) {
+        return new RedisTask<PlayerRecord>(plugin) {
+            @Override
+            protected boolean readOnly() {
+                return fromReplica;
+            }
+
+            @Override
+            public PlayerRecord unifiedJedisTask(UnifiedJedis unifiedJedis) {
+                return PlayerRecord.fromHash(unifiedJedis.hgetAll(redisKeys.playerData(uuid)));
+            }
+        }.execute();
     }
 
-    protected InetAddress getIpAddressFromRedis(UUID uuid) {
-        String ip = unifiedJedis.hget("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "ip");
-        if (ip == null) return null;
-        return InetAddresses.forString(ip);
+    protected Map<UUID, PlayerRecord> getPlayerRecordsFromRedis(Set<? extends UUID> uuids, boolean fromReplica) {
+        try {
+            return new RedisPipelineTask<Map<UUID, PlayerRecord>>(plugin) {
+                @Override
+                protected boolean readOnly() {
+                    return fromReplica;
+                }
+
+                @Override
+                public Map<UUID, PlayerRecord> doPooledPipeline(Pipeline pipeline) {
+                    HashMap<UUID, Response<Map<String, String>>> responses = new HashMap<>();
+                    for (UUID uuid : uuids) {
+                        responses.put(uuid, pipeline.hgetAll(redisKeys.playerData(uuid)));
+                    }
+                    pipeline.sync();
+                    HashMap<UUID, PlayerRecord> records = new HashMap<>();
+                    responses.forEach((uuid, response) -> records.put(uuid, PlayerRecord.fromHash(response.get())));
+                    return records;
+                }
+
+                @Override
+                public Map<UUID, PlayerRecord> clusterPipeline(ClusterPipeline pipeline) {
+                    HashMap<UUID, Response<Map<String, String>>> responses = new HashMap<>();
+                    for (UUID uuid : uuids) {
+                        responses.put(uuid, pipeline.hgetAll(redisKeys.playerData(uuid)));
+                    }
+                    pipeline.sync();
+                    HashMap<UUID, PlayerRecord> records = new HashMap<>();
+                    responses.forEach((uuid, response) -> records.put(uuid, PlayerRecord.fromHash(response.get())));
+                    return records;
+                }
+            }.call();
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
     }
 
-    protected long getLastOnlineFromRedis(UUID uuid) {
-        String unixString = unifiedJedis.hget("redis-bungee::" + this.networkId + "::player::" + uuid + "::data", "last-online");
-        if (unixString == null) return -1;
-        return Long.parseLong(unixString);
+    public PlayerRecord getPlayerRecord(UUID uuid) {
+        return this.playerRecordCache.get(uuid);
+    }
+
+    // missing records are loaded with a single pipeline
+    public Map<UUID, PlayerRecord> getPlayerRecords(Collection<UUID> uuids) {
+        return this.playerRecordCache.getAll(uuids);
     }
 
     public String getLastServerFor(UUID uuid) {
-        return this.lastServerCache.get(uuid);
+        return getPlayerRecord(uuid).lastServer();
     }
 
     public String getServerFor(UUID uuid) {
-        return this.serverCache.get(uuid);
+        return getPlayerRecord(uuid).server();
     }
 
     public String getProxyFor(UUID uuid) {
-        return this.proxyCache.get(uuid);
+        return getPlayerRecord(uuid).proxy();
     }
 
     public InetAddress getIpFor(UUID uuid) {
-        return this.ipCache.get(uuid);
+        return getPlayerRecord(uuid).ip();
     }
 
     public long getLastOnline(UUID uuid) {
-        return this.lastOnlineCache.get(uuid);
+        return getPlayerRecord(uuid).lastOnline();
     }
 
     public Multimap<String, UUID> serversToPlayers() {
-        return this.serverToPlayersCache.get(SERVERS_TO_PLAYERS_KEY);
+        long version = this.serversVersion.get();
+        ServersToPlayersSnapshot snapshot = this.serversToPlayersSnapshot;
+        if (snapshot == null || snapshot.version() != version) {
+            ImmutableMultimap.Builder<String, UUID> builder = ImmutableMultimap.builder();
+            this.playerServers.forEach((uuid, entry) -> {
+                if (entry.server() != null) builder.put(entry.server(), uuid);
+            });
+            snapshot = new ServersToPlayersSnapshot(version, builder.build());
+            this.serversToPlayersSnapshot = snapshot;
+        }
+        return snapshot.players();
     }
 
-    protected Multimap<String, UUID> serversToPlayersBuilder(Object o) {
+    /**
+     * Replaces the index with what redis has, events only keep it correct as long as none were missed.
+     * Scheduled by the platform every 10 minutes, entries changed by events while redis was read are kept,
+     * as are entries changed in the last seconds since the read may have been answered by a lagging replica.
+     */
+    public void reconcileServersToPlayers() {
+        long startVersion = this.serversVersion.get();
+        Map<UUID, String> servers = fetchPlayerServers();
+        Set<UUID> uuids = new HashSet<>(this.playerServers.keySet());
+        uuids.addAll(servers.keySet());
+        for (UUID uuid : uuids) {
+            this.playerServers.compute(uuid, (key, entry) -> {
+                if (entry != null && (entry.version() >= startVersion || this.recentlyChanged.getIfPresent(key) != null)) return entry;
+                String server = servers.get(key);
+                return server == null ? null : new ServerEntry(server, startVersion);
+            });
+        }
+        this.serversVersion.incrementAndGet();
+    }
+
+    protected Map<UUID, String> fetchPlayerServers() {
         try {
-            return new RedisPipelineTask<Multimap<String, UUID>>(plugin) {
+            return new RedisPipelineTask<Map<UUID, String>>(plugin) {
                 private final Set<UUID> uuids = plugin.proxyDataManager().networkPlayers();
-                private final ImmutableMultimap.Builder<String, UUID> builder = ImmutableMultimap.builder();
+                private final Map<UUID, String> servers = new HashMap<>();
+
+                @Override
+                protected boolean readOnly() {
+                    return true;
+                }
 
                 @Override
-                public Multimap<String, UUID> doPooledPipeline(Pipeline pipeline) {
+                public Map<UUID, String> doPooledPipeline(Pipeline pipeline) {
                     HashMap<UUID, Response<String>> responses = new HashMap<>();
                     for (UUID uuid : uuids) {
-                        responses.put(uuid, pipeline.hget("redis-bungee::" + networkId + "::player::" + uuid + "::data", "server"));
+                        responses.put(uuid, pipeline.hget(redisKeys.playerData(uuid), "server"));
                     }
                     pipeline.sync();
                     responses.forEach((uuid, response) -> {
                         String key = response.get();
                         if (key == null) return;
 
-                        builder.put(key, uuid);
+                        servers.put(uuid, key);
                     });
-                    return builder.build();
+                    return servers;
                 }
 
                 @Override
-                public Multimap<String, UUID> clusterPipeline(ClusterPipeline pipeline) {
+                public Map<UUID, String> clusterPipeline(ClusterPipeline pipeline) {
                     HashMap<UUID, Response<String>> responses = new HashMap<>();
                     for (UUID uuid : uuids) {
-                        responses.put(uuid, pipeline.hget("redis-bungee::" + networkId + "::player::" + uuid + "::data", "server"));
+                        responses.put(uuid, pipeline.hget(redisKeys.playerData(uuid), "server"));
                     }
                     pipeline.sync();
                     responses.forEach((uuid, response) -> {
                         String key = response.get();
                         if (key == null) return;
 
-                        builder.put(key, uuid);
+                        servers.put(uuid, key);
                     });
-                    return builder.build();
+                    return servers;
                 }
             }.call();
         } catch (Exception e) {
@@ -0,0 +1,36 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.google.common.net.InetAddresses;
+
+import java.net.InetAddress;
+import java.util.Map;
+
+/**
+ * Snapshot of a player data hash {@code redis-bungee::<network>::player::<uuid>::data}.
+ *
+ * @param server     current server, null if not online
+ * @param lastServer last server the player was connected to, null if never connected
+ * @param proxy      current proxy, null if not online
+ * @param ip         address the player is connected from, null if not online
+ * @param lastOnline 0 when online, -1 when never seen, otherwise unix millis of the last logout
+ * @since 0.13.0
+ */
+public record PlayerRecord(String server, String lastServer, String proxy, InetAddress ip, long lastOnline) {
+
+    public static PlayerRecord fromHash(Map<String, String> data) {
+        String ip = data.get("ip");
+        String lastOnline = data.get("last-online");
+        return new PlayerRecord(data.get("server"), data.get("last-server"), data.get("proxy"), ip == null ? null : InetAddresses.forString(ip), lastOnline == null ? -1 : Long.parseLong(lastOnline));
+    }
+
+}
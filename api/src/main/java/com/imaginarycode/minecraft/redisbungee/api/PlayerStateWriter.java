@@ -0,0 +1,240 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisPipelineTask;
+import com.imaginarycode.minecraft.redisbungee.api.util.RedisFunctions;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+/**
+ * Write-behind batcher for player join, quit and server change writes.
+ * Writes that arrive within the flush window are sent as one pipeline, so a login storm
+ * costs a handful of round trips instead of one per player.
+ * A single thread flushes in enqueue order, which keeps the order of writes for every player.
+ * <p>
+ * Every write returns the responses of its commands, a write fails when one of them does.
+ * A write that calls a redis function can have a fallback, used when redis lost the functions
+ * (a restart without persistence), it is sent right after the failed batch so the order is kept.
+ */
+public class PlayerStateWriter implements Runnable {
+
+    public record Stats(long flushes, long writes, long failedWrites, int largestBatch, double averageBatchSize, double averageFlushMillis, double lastFlushMillis) {
+
+    }
+
+    private record PendingWrite(Function<PipelineBase, List<Response<?>>> write, Function<PipelineBase, List<Response<?>>> fallback, CompletableFuture<Void> future) {
+
+    }
+
+    private final RedisBungeePlugin<?> plugin;
+    private final LinkedBlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final long flushWindowNanos;
+    private final int maxBatchSize;
+    private final Thread thread;
+    // called once per flush that found the redis functions missing
+    private final Runnable functionsMissing;
+    private volatile boolean closed = false;
+
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder writes = new LongAdder();
+    private final LongAdder failedWrites = new LongAdder();
+    private final LongAdder flushNanos = new LongAdder();
+    private final AtomicInteger largestBatch = new AtomicInteger();
+    private volatile long lastFlushNanos;
+
+    public PlayerStateWriter(RedisBungeePlugin<?> plugin, int flushWindowMillis, int maxBatchSize, Runnable functionsMissing) {
+        this.plugin = plugin;
+        this.functionsMissing = functionsMissing;
+        this.flushWindowNanos = TimeUnit.MILLISECONDS.toNanos(flushWindowMillis);
+        this.maxBatchSize = maxBatchSize;
+        this.thread = new Thread(this, "RedisBungee-Player-State-Writer");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public CompletableFuture<Void> enqueue(Function<PipelineBase, List<Response<?>>> write) {
+        return enqueue(write, null);
+    }
+
+    /**
+     * @param write    commands of the write, returns their responses
+     * @param fallback same write without redis functions, can be null
+     */
+    public CompletableFuture<Void> enqueue(Function<PipelineBase, List<Response<?>>> write, Function<PipelineBase, List<Response<?>>> fallback) {
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("player state writer is closed"));
+            return future;
+        }
+        queue.add(new PendingWrite(write, fallback, future));
+        return future;
+    }
+
+    @Override
+    public void run() {
+        List<PendingWrite> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingWrite first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // gather whatever else arrives within the window
+                long deadline = System.nanoTime() + flushWindowNanos;
+                while (batch.size() < maxBatchSize) {
+                    queue.drainTo(batch, maxBatchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= maxBatchSize || remaining <= 0 || closed) break;
+                    PendingWrite next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                flush(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<PendingWrite> batch) {
+        long start = System.nanoTime();
+        try {
+            List<List<Response<?>>> responses = execute(batch, false);
+            List<PendingWrite> retries = new ArrayList<>();
+            JedisDataException firstError = null;
+            int failed = 0;
+            for (int i = 0; i < batch.size(); i++) {
+                PendingWrite pendingWrite = batch.get(i);
+                JedisDataException error = errorOf(responses.get(i));
+                if (error == null) {
+                    pendingWrite.future().complete(null);
+                } else if (pendingWrite.fallback() != null && RedisFunctions.isMissing(error)) {
+                    retries.add(pendingWrite);
+                } else {
+                    if (firstError == null) firstError = error;
+                    failed++;
+                    pendingWrite.future().completeExceptionally(error);
+                }
+            }
+            if (!retries.isEmpty()) {
+                plugin.logWarn("redis functions are missing, writing {} player state changes without them", retries.size());
+                this.functionsMissing.run();
+                List<List<Response<?>>> retried = execute(retries, true);
+                for (int i = 0; i < retries.size(); i++) {
+                    JedisDataException error = errorOf(retried.get(i));
+                    if (error == null) {
+                        retries.get(i).future().complete(null);
+                    } else {
+                        if (firstError == null) firstError = error;
+                        failed++;
+                        retries.get(i).future().completeExceptionally(error);
+                    }
+                }
+            }
+            if (failed > 0) {
+                this.failedWrites.add(failed);
+                plugin.logWarn("{} of {} player state changes were rejected by redis: {}", failed, batch.size(), firstError.getMessage());
+            }
+        } catch (Exception e) {
+            plugin.logFatal("unable to write " + batch.size() + " player state changes", e);
+            this.failedWrites.add(batch.size());
+            for (PendingWrite pendingWrite : batch) {
+                pendingWrite.future().completeExceptionally(e);
+            }
+        } finally {
+            long took = System.nanoTime() - start;
+            this.lastFlushNanos = took;
+            this.flushNanos.add(took);
+            this.flushes.increment();
+            this.writes.add(batch.size());
+            this.largestBatch.accumulateAndGet(batch.size(), Math::max);
+        }
+    }
+
+    // responses of every write, in batch order
+    private List<List<Response<?>>> execute(List<PendingWrite> writes, boolean fallback) throws Exception {
+        return new RedisPipelineTask<List<List<Response<?>>>>(plugin) {
+            @Override
+            public List<List<Response<?>>> doPooledPipeline(Pipeline pipeline) {
+                List<List<Response<?>>> responses = new ArrayList<>(writes.size());
+                for (PendingWrite pendingWrite : writes) {
+                    responses.add((fallback ? pendingWrite.fallback() : pendingWrite.write()).apply(pipeline));
+                }
+                pipeline.sync();
+                return responses;
+            }
+
+            @Override
+            public List<List<Response<?>>> clusterPipeline(ClusterPipeline pipeline) {
+                List<List<Response<?>>> responses = new ArrayList<>(writes.size());
+                for (PendingWrite pendingWrite : writes) {
+                    responses.add((fallback ? pendingWrite.fallback() : pendingWrite.write()).apply(pipeline));
+                }
+                pipeline.sync();
+                return responses;
+            }
+        }.call();
+    }
+
+    // sync does not throw for commands redis rejected, get does
+    private static JedisDataException errorOf(List<Response<?>> responses) {
+        for (Response<?> response : responses) {
+            try {
+                response.get();
+            } catch (JedisDataException e) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+    public Stats stats() {
+        long flushes = this.flushes.sum();
+        long writes = this.writes.sum();
+        return new Stats(flushes, writes, failedWrites.sum(), largestBatch.get(),
+                flushes == 0 ? 0 : (double) writes / flushes,
+                flushes == 0 ? 0 : flushNanos.sum() / 1_000_000D / flushes,
+                lastFlushNanos / 1_000_000D);
+    }
+
+    // flushes what is still queued then stops the writer
+    public void close() {
+        this.closed = true;
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.thread.isAlive()) {
+            this.thread.interrupt();
+        }
+        PendingWrite pendingWrite;
+        while ((pendingWrite = queue.poll()) != null) {
+            pendingWrite.future().completeExceptionally(new RejectedExecutionException("player state writer is closed"));
+        }
+    }
+
+}
@@ -11,35 +11,43 @@
 package com.imaginarycode.minecraft.redisbungee.api;
 
 import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.google.common.collect.ImmutableSet;
+import com.imaginarycode.minecraft.redisbungee.api.config.PayloadFormat;
+import com.imaginarycode.minecraft.redisbungee.api.config.RedisBungeeConfiguration;
 import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
-import com.imaginarycode.minecraft.redisbungee.api.payloads.gson.AbstractPayloadSerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadCodec;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadCodec;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.JsonPayloadCodec;
 import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.DeathPayload;
 import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.HeartbeatPayload;
 import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.PubSubPayload;
 import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.RunCommandPayload;
-import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.DeathPayloadSerializer;
-import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.HeartbeatPayloadSerializer;
-import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.PubSubPayloadSerializer;
-import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.RunCommandPayloadSerializer;
 import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisPipelineTask;
 import com.imaginarycode.minecraft.redisbungee.api.util.RedisUtil;
+import com.imaginarycode.minecraft.redisbungee.api.util.UUIDUtil;
 import redis.clients.jedis.*;
+import redis.clients.jedis.exceptions.JedisDataException;
 import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
 import redis.clients.jedis.params.XReadParams;
 import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.util.SafeEncoder;
 
 import java.time.Instant;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import static com.google.common.base.Preconditions.checkArgument;
 
 public abstract class ProxyDataManager implements Runnable {
 
-    private static final int MAX_ENTRIES = 10000;
+    static final int MAX_ENTRIES = 10000;
 
     private final AtomicBoolean closed = new AtomicBoolean(false);
 
@@ -53,22 +61,80 @@ public abstract class ProxyDataManager implements Runnable {
 
     private final String proxyId;
 
-    private final String STREAM_ID;
+    private final RedisKeys redisKeys;
+
+    private final StreamTopology streamTopology;
+
+    // channels registered on this proxy, a sharded stream only reads their shards
+    private final Set<String> channels = ConcurrentHashMap.newKeySet();
+
+    // reader groups of the streams that have a reader thread, see StreamTopology#readerGroup
+    private final Set<Integer> readerGroups = ConcurrentHashMap.newKeySet();
 
     // This different from proxy id, just to detect if there is duplicate proxy using same proxy id
     private final UUID dataManagerUUID = UUID.randomUUID();
 
     protected final RedisBungeePlugin<?> plugin;
 
-    private final Gson gson = new GsonBuilder().registerTypeAdapter(AbstractPayload.class, new AbstractPayloadSerializer()).registerTypeAdapter(HeartbeatPayload.class, new HeartbeatPayloadSerializer()).registerTypeAdapter(DeathPayload.class, new DeathPayloadSerializer()).registerTypeAdapter(PubSubPayload.class, new PubSubPayloadSerializer()).registerTypeAdapter(RunCommandPayload.class, new RunCommandPayloadSerializer()).create();
+    private final PayloadRegistry payloadRegistry = new PayloadRegistry(this::handleHeartBeat, this::handleProxyDeath, this::handleCommand, this::handleChannelMessage);
+
+    private final PayloadCodec binaryCodec = new BinaryPayloadCodec(payloadRegistry);
+
+    private final PayloadCodec jsonCodec = new JsonPayloadCodec(payloadRegistry);
+
+    // codec used for publishing, reading always accepts both formats
+    private final PayloadCodec payloadCodec;
+
+    private final StreamPublisher publisher;
+
+    private final RedisBungeeConfiguration.StreamReaderConfiguration streamReaderConfiguration;
+
+    private final long startedAt = System.currentTimeMillis();
+
+    private final int keepaliveInterval;
+
+    private final boolean binaryPlayerSets;
+
+    private final int proxyTimeout;
+
+    private volatile int lastPublishedPlayers = -1;
+
+    private volatile long lastPublishedHeartbeat;
+
+    // replica of every proxy online players set, bootstrapped from redis when a proxy is first seen,
+    // kept up to date by player join / leave messages and reconciled by the correction task
+    private final ConcurrentHashMap<String, Set<UUID>> proxyMembers = new ConcurrentHashMap<>();
+
+    // bumped after every change of proxyMembers, a snapshot is only served while its version is current,
+    // so a snapshot built from members that changed meanwhile is never kept
+    private final AtomicLong membersVersion = new AtomicLong();
+
+    private record NetworkPlayersSnapshot(long version, Set<UUID> players) {
+
+    }
+
+    private volatile NetworkPlayersSnapshot networkPlayersSnapshot;
 
     public ProxyDataManager(RedisBungeePlugin<?> plugin) {
         this.plugin = plugin;
         this.proxyId = this.plugin.configuration().getProxyId();
         this.unifiedJedis = plugin.getSummoner().obtainResource();
-        this.destroyProxyMembers();
         this.networkId = plugin.configuration().networkId();
-        this.STREAM_ID = "network-" + this.networkId + "-redisbungee-stream";
+        this.redisKeys = new RedisKeys(this.networkId, plugin.configuration().keySchema());
+        RedisBungeeConfiguration.StreamShardingConfiguration shardingConfiguration = plugin.configuration().streamShardingConfiguration();
+        this.streamTopology = new StreamTopology(this.redisKeys, shardingConfiguration.enabled() ? shardingConfiguration.channelShards() : 0, plugin.getRedisBungeeMode() == RedisBungeeMode.CLUSTER);
+        // read by run()
+        this.readerGroups.add(this.streamTopology.readerGroup(this.streamTopology.heartbeatStream()));
+        this.destroyProxyMembers();
+        this.payloadCodec = plugin.configuration().payloadFormat() == PayloadFormat.JSON ? jsonCodec : binaryCodec;
+        this.proxyMembers.put(this.proxyId, ConcurrentHashMap.newKeySet());
+        RedisBungeeConfiguration.StreamPublisherConfiguration publisherConfiguration = plugin.configuration().streamPublisherConfiguration();
+        this.streamReaderConfiguration = plugin.configuration().streamReaderConfiguration();
+        this.keepaliveInterval = plugin.configuration().heartbeatKeepaliveInterval();
+        this.binaryPlayerSets = plugin.configuration().binaryPlayerSets();
+        // a proxy is only considered dead after missing a few keepalives
+        this.proxyTimeout = Math.max(RedisUtil.PROXY_TIMEOUT, this.keepaliveInterval * 3);
+        this.publisher = new StreamPublisher(plugin, XAddParams.xAddParams().maxLen(MAX_ENTRIES).id(StreamEntryID.NEW_ENTRY), publisherConfiguration.queueSize(), publisherConfiguration.maxBatchSize(), publisherConfiguration.backpressure());
     }
 
     public abstract Set<UUID> getLocalOnlineUUIDs();
@@ -76,16 +142,33 @@ public abstract class ProxyDataManager implements Runnable {
     public Set<UUID> getPlayersOn(String proxyId) {
         checkArgument(proxiesIds().contains(proxyId), proxyId + " is not a valid proxy ID");
         if (proxyId.equals(this.proxyId)) return this.getLocalOnlineUUIDs();
-        if (!this.heartbeats.containsKey(proxyId)) {
+        Set<UUID> members = this.proxyMembers.get(proxyId);
+        if (!this.heartbeats.containsKey(proxyId) || members == null) {
             return new HashSet<>();  // return empty hashset or null?
         }
-        return getProxyMembers(proxyId);
+        return new HashSet<>(members);
+    }
+
+    // member written to the online players set, proxies older than 0.13.0 can only read the uuid string
+    public byte[] proxyMember(UUID uuid) {
+        return this.binaryPlayerSets ? UUIDUtil.toBytes(uuid) : UUIDUtil.toStringBytes(uuid);
+    }
+
+    private byte[][] proxyMembers(Collection<UUID> uuids) {
+        byte[][] members = new byte[uuids.size()][];
+        int i = 0;
+        for (UUID uuid : uuids) {
+            members[i++] = proxyMember(uuid);
+        }
+        return members;
     }
 
     // this skip checking if proxy is and its package private
     // due proxy shutdown shenanigans
     public boolean isPlayerTrulyOnProxy(String proxyId, UUID uuid) {
-        return unifiedJedis.sismember("redisbungee::" + this.networkId + "::proxies::" + proxyId + "::online-players", uuid.toString());
+        // proxies older than 0.13.0 store the uuid string
+        List<Boolean> members = unifiedJedis.smismember(redisKeys.proxyMembersBytes(proxyId), UUIDUtil.toBytes(uuid), SafeEncoder.encode(uuid.toString()));
+        return members.contains(Boolean.TRUE);
     }
 
 
@@ -93,67 +176,120 @@ public abstract class ProxyDataManager implements Runnable {
         return Collections.list(this.heartbeats.keys());
     }
 
-    public synchronized void sendCommandTo(String proxyToRun, String command) {
-        if (isClosed()) return;
+    // returned futures complete when the payload was written to the stream
+    public CompletableFuture<Void> sendCommandTo(String proxyToRun, String command) {
+        if (isClosed()) return CompletableFuture.completedFuture(null);
         if (proxyToRun.equals("allservers") || proxyToRun.equals(this.proxyId())) {
             handlePlatformCommandExecution(command);
         }
-        publishPayload(new RunCommandPayload(this.proxyId, proxyToRun, command));
+        return publishPayload(new RunCommandPayload(this.proxyId, proxyToRun, command));
     }
 
-    public synchronized void sendChannelMessage(String channel, String message) {
-        if (isClosed()) return;
+    public CompletableFuture<Void> sendChannelMessage(String channel, String message) {
+        if (isClosed()) return CompletableFuture.completedFuture(null);
         this.plugin.fireEvent(this.plugin.createPubSubEvent(channel, message));
-        publishPayload(new PubSubPayload(this.proxyId, channel, message));
+        return publishPayload(new PubSubPayload(this.proxyId, channel, message));
     }
 
-    // call every 1 second
-    public synchronized void publishHeartbeat() {
-        if (isClosed()) return;
-        HeartbeatPayload.HeartbeatData heartbeatData = new HeartbeatPayload.HeartbeatData(Instant.now().getEpochSecond(), this.getLocalOnlineUUIDs().size());
+    // call every 1 second, only publishes when the player count has changed or the keepalive interval passed
+    public CompletableFuture<Void> publishHeartbeat() {
+        if (isClosed()) return CompletableFuture.completedFuture(null);
+        long now = Instant.now().getEpochSecond();
+        int players = this.getLocalOnlineUUIDs().size();
+        HeartbeatPayload.HeartbeatData heartbeatData = new HeartbeatPayload.HeartbeatData(now, players, this.keepaliveInterval);
         this.heartbeats.put(this.proxyId(), heartbeatData);
-        publishPayload(new HeartbeatPayload(this.proxyId, heartbeatData));
+        if (players == this.lastPublishedPlayers && now - this.lastPublishedHeartbeat < this.keepaliveInterval) {
+            return CompletableFuture.completedFuture(null);
+        }
+        this.lastPublishedPlayers = players;
+        this.lastPublishedHeartbeat = now;
+        return publishPayload(new HeartbeatPayload(this.proxyId, heartbeatData));
     }
 
+    // served from the local replica, no redis round trip
     public Set<UUID> networkPlayers() {
+        long version = this.membersVersion.get();
+        NetworkPlayersSnapshot snapshot = this.networkPlayersSnapshot;
+        if (snapshot == null || snapshot.version() != version) {
+            ImmutableSet.Builder<UUID> builder = ImmutableSet.builder();
+            for (Set<UUID> members : this.proxyMembers.values()) {
+                builder.addAll(members);
+            }
+            snapshot = new NetworkPlayersSnapshot(version, builder.build());
+            this.networkPlayersSnapshot = snapshot;
+        }
+        return snapshot.players();
+    }
+
+    // called by PlayerDataManager when a player joined or left another proxy
+    public void networkPlayerJoined(String proxyId, UUID uuid) {
+        Set<UUID> members = this.proxyMembers.get(proxyId);
+        // unknown proxies are bootstrapped from redis on their first heartbeat
+        if (members != null && members.add(uuid)) {
+            this.membersVersion.incrementAndGet();
+        }
+    }
+
+    public void networkPlayerLeft(String proxyId, UUID uuid) {
+        Set<UUID> members = this.proxyMembers.get(proxyId);
+        if (members != null && members.remove(uuid)) {
+            this.membersVersion.incrementAndGet();
+        }
+    }
+
+    private Map<String, Set<UUID>> fetchProxyMembers(Collection<String> proxies) {
         try {
-            return new RedisPipelineTask<Set<UUID>>(this.plugin) {
+            return new RedisPipelineTask<Map<String, Set<UUID>>>(this.plugin) {
                 @Override
-                public Set<UUID> doPooledPipeline(Pipeline pipeline) {
-                    HashSet<Response<Set<String>>> responses = new HashSet<>();
-                    for (String proxyId : proxiesIds()) {
-                        responses.add(pipeline.smembers("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players"));
+                protected boolean readOnly() {
+                    return true;
+                }
+
+                @Override
+                public Map<String, Set<UUID>> doPooledPipeline(Pipeline pipeline) {
+                    Map<String, Response<Set<byte[]>>> responses = new HashMap<>();
+                    for (String proxyId : proxies) {
+                        responses.put(proxyId, pipeline.smembers(redisKeys.proxyMembersBytes(proxyId)));
                     }
                     pipeline.sync();
-                    HashSet<UUID> uuids = new HashSet<>();
-                    for (Response<Set<String>> response : responses) {
-                        for (String stringUUID : response.get()) {
-                            uuids.add(UUID.fromString(stringUUID));
-                        }
-                    }
-                    return uuids;
+                    return toUUIDs(responses);
                 }
 
                 @Override
-                public Set<UUID> clusterPipeline(ClusterPipeline pipeline) {
-                    HashSet<Response<Set<String>>> responses = new HashSet<>();
-                    for (String proxyId : proxiesIds()) {
-                        responses.add(pipeline.smembers("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players"));
+                public Map<String, Set<UUID>> clusterPipeline(ClusterPipeline pipeline) {
+                    Map<String, Response<Set<byte[]>>> responses = new HashMap<>();
+                    for (String proxyId : proxies) {
+                        responses.put(proxyId, pipeline.smembers(redisKeys.proxyMembersBytes(proxyId)));
                     }
                     pipeline.sync();
-                    HashSet<UUID> uuids = new HashSet<>();
-                    for (Response<Set<String>> response : responses) {
-                        for (String stringUUID : response.get()) {
-                            uuids.add(UUID.fromString(stringUUID));
+                    return toUUIDs(responses);
+                }
+
+                private Map<String, Set<UUID>> toUUIDs(Map<String, Response<Set<byte[]>>> responses) {
+                    Map<String, Set<UUID>> members = new HashMap<>();
+                    responses.forEach((proxyId, response) -> {
+                        Set<UUID> uuids = ConcurrentHashMap.newKeySet();
+                        for (byte[] member : response.get()) {
+                            uuids.add(UUIDUtil.fromMember(member));
                         }
-                    }
-                    return uuids;
+                        members.put(proxyId, uuids);
+                    });
+                    return members;
                 }
             }.call();
         } catch (Exception e) {
             throw new RuntimeException("unable to get network players", e);
         }
+    }
 
+    // replaces the replica of the given proxies with what redis has
+    private void reconcileProxyMembers(Collection<String> proxies) {
+        if (proxies.isEmpty()) return;
+        fetchProxyMembers(proxies).forEach((proxy, members) -> {
+            // proxy might have died while we were fetching
+            if (this.heartbeats.containsKey(proxy)) this.proxyMembers.put(proxy, members);
+        });
+        this.membersVersion.incrementAndGet();
     }
 
     public int totalNetworkPlayers() {
@@ -171,25 +307,38 @@ public abstract class ProxyDataManager implements Runnable {
     }
 
     // Call on close
-    private synchronized void publishDeath() {
+    private void publishDeath() {
         publishPayload(new DeathPayload(this.proxyId));
     }
 
-    private void publishPayload(AbstractPayload payload) {
-        Map<String, String> data = new HashMap<>();
-        data.put("payload", gson.toJson(payload));
-        data.put("data-manager-uuid", this.dataManagerUUID.toString());
-        data.put("class", payload.getClassName());
-        this.unifiedJedis.xadd(STREAM_ID, XAddParams.xAddParams().maxLen(MAX_ENTRIES).id(StreamEntryID.NEW_ENTRY), data);
+    /**
+     * Publishes a payload registered in {@link #payloadRegistry()} to every proxy in the network.
+     *
+     * @param payload payload to send, sender proxy must be this proxy id
+     */
+    public CompletableFuture<Void> sendPayload(AbstractPayload payload) {
+        if (isClosed()) return CompletableFuture.completedFuture(null);
+        checkArgument(payload.senderProxy().equals(this.proxyId), "sender proxy must be " + this.proxyId);
+        checkArgument(payloadRegistry.byType(payload.getClass()) != null, payload.getClassName() + " is not registered");
+        return publishPayload(payload);
+    }
+
+    private CompletableFuture<Void> publishPayload(AbstractPayload payload) {
+        return this.publisher.publish(this.streamTopology.streamFor(payload), payloadCodec.encode(payload, this.dataManagerUUID)).thenAccept(id -> {
+        });
     }
 
 
     private void handleHeartBeat(HeartbeatPayload payload) {
         String id = payload.senderProxy();
-        if (!heartbeats.containsKey(id)) {
+        // replayed heartbeat of a proxy that is already considered dead
+        if (Instant.now().getEpochSecond() - payload.data().heartbeat() > payload.data().timeout()) {
+            return;
+        }
+        if (heartbeats.put(id, payload.data()) == null) {
             plugin.logInfo("Proxy {} has connected", id);
+            reconcileProxyMembers(Collections.singleton(id));
         }
-        heartbeats.put(id, payload.data());
     }
 
 
@@ -198,6 +347,10 @@ public abstract class ProxyDataManager implements Runnable {
         // let's check this proxy players
         Set<UUID> localOnlineUUIDs = getLocalOnlineUUIDs();
         Set<UUID> storedRedisUuids = getProxyMembers(this.proxyId);
+        Set<UUID> localMembers = ConcurrentHashMap.newKeySet();
+        localMembers.addAll(localOnlineUUIDs);
+        this.proxyMembers.put(this.proxyId, localMembers);
+        this.membersVersion.incrementAndGet();
 
         if (!localOnlineUUIDs.equals(storedRedisUuids)) {
             plugin.logWarn("De-synced playerS set detected correcting....");
@@ -215,32 +368,18 @@ public abstract class ProxyDataManager implements Runnable {
                 new RedisPipelineTask<Void>(plugin) {
                     @Override
                     public Void doPooledPipeline(Pipeline pipeline) {
-                        Set<String> removeString = new HashSet<>();
-                        for (UUID uuid : remove) {
-                            removeString.add(uuid.toString());
-                        }
-                        Set<String> addString = new HashSet<>();
-                        for (UUID uuid : add) {
-                            addString.add(uuid.toString());
-                        }
-                        pipeline.srem("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players", removeString.toArray(new String[]{}));
-                        pipeline.sadd("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players", addString.toArray(new String[]{}));
+                        byte[] key = redisKeys.proxyMembersBytes(proxyId);
+                        if (!remove.isEmpty()) pipeline.srem(key, UUIDUtil.toMembers(remove));
+                        if (!add.isEmpty()) pipeline.sadd(key, proxyMembers(add));
                         pipeline.sync();
                         return null;
                     }
 
                     @Override
                     public Void clusterPipeline(ClusterPipeline pipeline) {
-                        Set<String> removeString = new HashSet<>();
-                        for (UUID uuid : remove) {
-                            removeString.add(uuid.toString());
-                        }
-                        Set<String> addString = new HashSet<>();
-                        for (UUID uuid : add) {
-                            addString.add(uuid.toString());
-                        }
-                        pipeline.srem("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players", removeString.toArray(new String[]{}));
-                        pipeline.sadd("redisbungee::" + networkId + "::proxies::" + proxyId + "::online-players", addString.toArray(new String[]{}));
+                        byte[] key = redisKeys.proxyMembersBytes(proxyId);
+                        if (!remove.isEmpty()) pipeline.srem(key, UUIDUtil.toMembers(remove));
+                        if (!add.isEmpty()) pipeline.sadd(key, proxyMembers(add));
                         pipeline.sync();
                         return null;
                     }
@@ -252,12 +391,16 @@ public abstract class ProxyDataManager implements Runnable {
         }
 
 
-        // handle dead proxies "THAT" Didn't send death payload but considered dead due TIMEOUT ~30 seconds
+        // reconcile the network players replica of the other proxies
+        reconcileProxyMembers(proxiesIds().stream().filter(id -> !id.equals(this.proxyId)).toList());
+
+        // handle dead proxies "THAT" Didn't send death payload but considered dead due TIMEOUT ~30 seconds or 3 missed keepalives
         final Set<String> deadProxies = new HashSet<>();
         for (Map.Entry<String, HeartbeatPayload.HeartbeatData> stringHeartbeatDataEntry : this.heartbeats.entrySet()) {
             String id = stringHeartbeatDataEntry.getKey();
             long heartbeat = stringHeartbeatDataEntry.getValue().heartbeat();
-            if (Instant.now().getEpochSecond() - heartbeat > RedisUtil.PROXY_TIMEOUT) {
+            // derived from the keepalive interval of that proxy, proxies may use different intervals
+            if (Instant.now().getEpochSecond() - heartbeat > stringHeartbeatDataEntry.getValue().timeout()) {
                 deadProxies.add(id);
                 cleanProxy(id);
             }
@@ -267,7 +410,7 @@ public abstract class ProxyDataManager implements Runnable {
                 @Override
                 public Void doPooledPipeline(Pipeline pipeline) {
                     for (String deadProxy : deadProxies) {
-                        pipeline.del("redisbungee::" + networkId + "::proxies::" + deadProxy + "::online-players");
+                        pipeline.del(redisKeys.proxyMembersBytes(deadProxy));
                     }
                     pipeline.sync();
                     return null;
@@ -276,7 +419,7 @@ public abstract class ProxyDataManager implements Runnable {
                 @Override
                 public Void clusterPipeline(ClusterPipeline pipeline) {
                     for (String deadProxy : deadProxies) {
-                        pipeline.del("redisbungee::" + networkId + "::proxies::" + deadProxy + "::online-players");
+                        pipeline.del(redisKeys.proxyMembersBytes(deadProxy));
                     }
                     pipeline.sync();
                     return null;
@@ -295,14 +438,20 @@ public abstract class ProxyDataManager implements Runnable {
         if (id.equals(this.proxyId())) {
             return;
         }
-        for (UUID uuid : getProxyMembers(id)) plugin.fireEvent(plugin.createPlayerLeftNetworkEvent(uuid));
+        Set<UUID> members = this.proxyMembers.remove(id);
+        this.membersVersion.incrementAndGet();
+        if (members == null) members = getProxyMembers(id);
+        for (UUID uuid : members) plugin.fireEvent(plugin.createPlayerLeftNetworkEvent(uuid));
         this.heartbeats.remove(id);
+        this.redisKeys.forgetProxy(id);
         plugin.logInfo("Proxy {} has disconnected", id);
     }
 
     private void handleChannelMessage(PubSubPayload payload) {
         String channel = payload.channel();
         String message = payload.message();
+        // a shard also carries channels that hash to it but are not registered here
+        if (!this.streamTopology.delivers(channel, this.channels)) return;
         this.plugin.fireEvent(this.plugin.createPubSubEvent(channel, message));
     }
 
@@ -317,61 +466,97 @@ public abstract class ProxyDataManager implements Runnable {
     }
 
 
-    public void addPlayer(UUID uuid) {
-        this.unifiedJedis.sadd("redisbungee::" + this.networkId + "::proxies::" + this.proxyId + "::online-players", uuid.toString());
-    }
-
-    public void removePlayer(UUID uuid) {
-        this.unifiedJedis.srem("redisbungee::" + this.networkId + "::proxies::" + this.proxyId + "::online-players", uuid.toString());
-    }
-
     private void destroyProxyMembers() {
-        unifiedJedis.del("redisbungee::" + this.networkId + "::proxies::" + this.proxyId + "::online-players");
+        unifiedJedis.del(this.redisKeys.proxyMembersBytes(this.proxyId));
     }
 
     private Set<UUID> getProxyMembers(String proxyId) {
-        Set<String> uuidsStrings = unifiedJedis.smembers("redisbungee::" + this.networkId + "::proxies::" + proxyId + "::online-players");
+        Set<byte[]> members = unifiedJedis.smembers(redisKeys.proxyMembersBytes(proxyId));
         HashSet<UUID> uuids = new HashSet<>();
-        for (String proxyMember : uuidsStrings) {
-            uuids.add(UUID.fromString(proxyMember));
+        for (byte[] member : members) {
+            uuids.add(UUIDUtil.fromMember(member));
         }
         return uuids;
     }
 
-    private StreamEntryID lastStreamEntryID;
+    // last entry read from every stream, not used with consumer groups
+    private final ConcurrentHashMap<String, StreamEntryID> lastStreamEntryIDs = new ConcurrentHashMap<>();
+
+    /**
+     * Registers channels that have listeners on this proxy. Channel messages of the network are always read
+     * unless the stream is sharded, then only the shards of registered channels are.
+     */
+    public void registerChannels(String... channels) {
+        Collections.addAll(this.channels, channels);
+        ensureReaders();
+    }
+
+    public void unregisterChannels(String... channels) {
+        for (String channel : channels) {
+            this.channels.remove(channel);
+        }
+    }
+
+    // streams in different cluster slots can't be read by one XREAD, every reader group gets its own thread
+    private void ensureReaders() {
+        for (String stream : this.streamTopology.subscribedStreams(this.channels)) {
+            int readerGroup = this.streamTopology.readerGroup(stream);
+            if (this.readerGroups.add(readerGroup)) {
+                Thread thread = new Thread(() -> readStreams(readerGroup), "RedisBungee-Stream-Reader-" + readerGroup);
+                thread.setDaemon(true);
+                thread.start();
+            }
+        }
+    }
+
+    private List<String> streamsOf(int readerGroup) {
+        List<String> streams = new ArrayList<>();
+        for (String stream : this.streamTopology.subscribedStreams(this.channels)) {
+            if (this.streamTopology.readerGroup(stream) == readerGroup) streams.add(stream);
+        }
+        return streams;
+    }
+
+    // a sharded stream is read with a timeout so newly registered channels are picked up
+    private int blockMillis() {
+        return this.streamTopology.sharded() ? 1000 : 0;
+    }
+
+    // reading starts after the newest entry at the time a stream is first read
+    private StreamEntryID lastEntryOf(String stream) {
+        List<StreamEntry> entries = unifiedJedis.xrevrange(stream, "+", "-", 1);
+        return entries.isEmpty() ? new StreamEntryID() : entries.get(0).getID();
+    }
 
     // polling from stream
     @Override
     public void run() {
+        ensureReaders();
+        readStreams(this.streamTopology.readerGroup(this.streamTopology.heartbeatStream()));
+    }
+
+    private void readStreams(int readerGroup) {
+        if (this.streamReaderConfiguration.consumerGroups()) {
+            runConsumerGroup(readerGroup);
+            return;
+        }
         while (!isClosed()) {
             try {
-                List<java.util.Map.Entry<String, List<StreamEntry>>> data = unifiedJedis.xread(XReadParams.xReadParams().block(0), Collections.singletonMap(STREAM_ID, lastStreamEntryID != null ? lastStreamEntryID : StreamEntryID.LAST_ENTRY));
-                for (Map.Entry<String, List<StreamEntry>> datum : data) {
-                    for (StreamEntry streamEntry : datum.getValue()) {
-                        this.lastStreamEntryID = streamEntry.getID();
-                        String payloadData = streamEntry.getFields().get("payload");
-                        String clazz = streamEntry.getFields().get("class");
-                        UUID payloadDataManagerUUID = UUID.fromString(streamEntry.getFields().get("data-manager-uuid"));
-
-                        AbstractPayload unknownPayload = (AbstractPayload) gson.fromJson(payloadData, Class.forName(clazz));
-
-                        if (unknownPayload.senderProxy().equals(this.proxyId)) {
-                            if (!payloadDataManagerUUID.equals(this.dataManagerUUID)) {
-                                plugin.logWarn("detected other proxy is using same ID! {} this can cause issues, please shutdown this proxy and change the id!", this.proxyId);
-                            }
-                            continue;
-                        }
-                        if (unknownPayload instanceof HeartbeatPayload payload) {
-                            handleHeartBeat(payload);
-                        } else if (unknownPayload instanceof DeathPayload payload) {
-                            handleProxyDeath(payload);
-                        } else if (unknownPayload instanceof RunCommandPayload payload) {
-                            handleCommand(payload);
-                        } else if (unknownPayload instanceof PubSubPayload payload) {
-                            handleChannelMessage(payload);
-                        } else {
-                            plugin.logWarn("got unknown data manager payload: {}", unknownPayload.getClassName());
-                        }
+                List<String> streams = streamsOf(readerGroup);
+                if (streams.isEmpty()) {
+                    // every channel of this group was unregistered
+                    Thread.sleep(1000);
+                    continue;
+                }
+                Map<String, StreamEntryID> offsets = new HashMap<>();
+                for (String stream : streams) {
+                    offsets.put(stream, this.lastStreamEntryIDs.computeIfAbsent(stream, this::lastEntryOf));
+                }
+                List<?> reply = unifiedJedis.xread(XReadParams.xReadParams().block(blockMillis()), BinaryStreamEntry.offsets(offsets));
+                for (Map.Entry<String, List<BinaryStreamEntry>> datum : BinaryStreamEntry.fromRead(reply).entrySet()) {
+                    for (BinaryStreamEntry streamEntry : datum.getValue()) {
+                        this.lastStreamEntryIDs.put(datum.getKey(), streamEntry.id());
+                        handleStreamEntry(streamEntry);
                     }
                 }
             } catch (Exception e) {
@@ -384,9 +569,122 @@ public abstract class ProxyDataManager implements Runnable {
         }
     }
 
+    // every proxy owns a group, so each proxy still receives every entry but redis remembers
+    // what was delivered and acknowledged, entries sent while reconnecting or restarting are not lost.
+    private void runConsumerGroup(int readerGroup) {
+        final String group = "redisbungee-proxy-" + this.proxyId;
+        // streams the group was created on and claimed from since the last error
+        final Set<String> prepared = new HashSet<>();
+        while (!isClosed()) {
+            try {
+                List<String> streams = streamsOf(readerGroup);
+                if (streams.isEmpty()) {
+                    Thread.sleep(1000);
+                    continue;
+                }
+                Map<String, StreamEntryID> offsets = new HashMap<>();
+                for (String stream : streams) {
+                    if (prepared.add(stream)) {
+                        createConsumerGroup(stream, group);
+                        claimPendingEntries(stream, group);
+                    }
+                    offsets.put(stream, StreamEntryID.UNRECEIVED_ENTRY);
+                }
+                List<?> reply = unifiedJedis.xreadGroup(SafeEncoder.encode(group), SafeEncoder.encode(this.proxyId), XReadGroupParams.xReadGroupParams().count(this.streamReaderConfiguration.batchSize()).block(blockMillis()), BinaryStreamEntry.offsets(offsets));
+                for (Map.Entry<String, List<BinaryStreamEntry>> datum : BinaryStreamEntry.fromRead(reply).entrySet()) {
+                    handleAndAcknowledge(datum.getKey(), group, datum.getValue());
+                }
+            } catch (Exception e) {
+                this.plugin.logFatal("an error has occurred in the stream", e);
+                // anything delivered but not acknowledged is claimed again after the backoff
+                prepared.clear();
+                try {
+                    Thread.sleep(5000);
+                } catch (InterruptedException ignored) {
+                }
+            }
+        }
+    }
+
+    private void createConsumerGroup(String stream, String group) {
+        try {
+            unifiedJedis.xgroupCreate(stream, group, StreamEntryID.LAST_ENTRY, true);
+            plugin.logInfo("Created stream consumer group {} on {}", group, stream);
+        } catch (JedisDataException e) {
+            // group already exists, reading resumes from the last delivered entry
+            if (e.getMessage() == null || !e.getMessage().startsWith("BUSYGROUP")) throw e;
+        }
+    }
+
+    private void claimPendingEntries(String stream, String group) {
+        StreamEntryID cursor = new StreamEntryID();
+        int claimed = 0;
+        do {
+            List<?> result = unifiedJedis.xautoclaim(SafeEncoder.encode(stream), SafeEncoder.encode(group), SafeEncoder.encode(this.proxyId), 0, SafeEncoder.encode(cursor.toString()), XAutoClaimParams.xAutoClaimParams().count(this.streamReaderConfiguration.batchSize()));
+            cursor = new StreamEntryID(SafeEncoder.encode((byte[]) result.get(0)));
+            List<BinaryStreamEntry> entries = BinaryStreamEntry.fromEntries(result.get(1));
+            claimed += entries.size();
+            handleAndAcknowledge(stream, group, entries);
+        } while (!cursor.equals(new StreamEntryID()));
+        if (claimed > 0) {
+            plugin.logInfo("Replayed {} pending entries of {}", claimed, stream);
+        }
+    }
+
+    private void handleAndAcknowledge(String stream, String group, List<BinaryStreamEntry> entries) {
+        if (entries.isEmpty()) return;
+        List<StreamEntryID> handled = new ArrayList<>(entries.size());
+        // entries older than the proxy timeout are acknowledged without being handled, commands and messages
+        // replayed hours after they were sent would do more harm than good (entry ids carry the redis time)
+        long oldest = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(this.proxyTimeout);
+        int expired = 0;
+        for (BinaryStreamEntry streamEntry : entries) {
+            if (streamEntry.id().getTime() < oldest) {
+                expired++;
+            } else if (streamEntry.fields() != null) {
+                // entries trimmed by MAXLEN while pending have no fields anymore
+                try {
+                    handleStreamEntry(streamEntry);
+                } catch (Exception e) {
+                    // acknowledged anyway, a payload that can not be handled would be replayed forever
+                    plugin.logFatal("unable to handle stream entry " + streamEntry.id(), e);
+                }
+            }
+            handled.add(streamEntry.id());
+        }
+        if (!handled.isEmpty()) {
+            unifiedJedis.xack(stream, group, handled.toArray(new StreamEntryID[0]));
+        }
+        if (expired > 0) {
+            plugin.logWarn("Skipped {} entries of {} older than {} seconds", expired, stream, this.proxyTimeout);
+        }
+    }
+
+    private void handleStreamEntry(BinaryStreamEntry streamEntry) throws Exception {
+        Map<String, byte[]> fields = streamEntry.fields();
+        PayloadCodec codec = binaryCodec.accepts(fields) ? binaryCodec : jsonCodec;
+        PayloadCodec.DecodedPayload decodedPayload = codec.decode(fields);
+        if (decodedPayload == null) {
+            plugin.logWarn("got unknown data manager payload: {}", fields.containsKey("class") ? JsonPayloadCodec.field(fields, "class") : "binary");
+            return;
+        }
+        UUID payloadDataManagerUUID = decodedPayload.dataManagerUUID();
+        AbstractPayload unknownPayload = decodedPayload.payload();
+
+        if (unknownPayload.senderProxy().equals(this.proxyId)) {
+            // entries replayed from before this start up were sent by our previous instance
+            if (!payloadDataManagerUUID.equals(this.dataManagerUUID) && streamEntry.id().getTime() >= this.startedAt) {
+                plugin.logWarn("detected other proxy is using same ID! {} this can cause issues, please shutdown this proxy and change the id!", this.proxyId);
+            }
+            return;
+        }
+        decodedPayload.registration().handle(unknownPayload);
+    }
+
     public void close() {
         closed.set(true);
         this.publishDeath();
+        this.publisher.close();
         this.heartbeats.clear();
         this.destroyProxyMembers();
     }
@@ -402,4 +700,21 @@ public abstract class ProxyDataManager implements Runnable {
     public String networkId() {
         return networkId;
     }
+
+    public PayloadRegistry payloadRegistry() {
+        return payloadRegistry;
+    }
+
+    public RedisKeys redisKeys() {
+        return redisKeys;
+    }
+
+    public StreamTopology streamTopology() {
+        return streamTopology;
+    }
+
+    // stream entry of a channel message, for callers that write it to the stream in their own script or pipeline
+    Map<String, byte[]> encodeChannelMessage(String channel, String message) {
+        return payloadCodec.encode(new PubSubPayload(this.proxyId, channel, message), this.dataManagerUUID);
+    }
 }
@@ -11,5 +11,5 @@
 package com.imaginarycode.minecraft.redisbungee.api;
 
 public enum RedisBungeeMode {
-    SINGLE, CLUSTER
+    SINGLE, CLUSTER, SENTINEL
 }
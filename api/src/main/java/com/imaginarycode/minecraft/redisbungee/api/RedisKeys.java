@@ -0,0 +1,153 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.imaginarycode.minecraft.redisbungee.api.config.KeySchema;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Redis keys of one network. Prefixes are built once, per proxy and per player keys are built on first use
+ * and kept while they are in use, set keys are also kept encoded for the binary set commands.
+ * <p>
+ * With {@link KeySchema#HASH_TAGGED} the stream and the online players sets share one cluster slot,
+ * player data is spread over {@link #PLAYER_DATA_SHARDS} slots so a pipeline over many players
+ * only reaches a few nodes.
+ */
+public final class RedisKeys {
+
+    private static final String PLAYER_DATA_SUFFIX = "::data";
+    private static final String PROXY_MEMBERS_SUFFIX = "::online-players";
+    public static final int PLAYER_DATA_SHARDS = 16;
+
+    private final String stream;
+    private final String networkId;
+    private final String proxiesPrefix;
+    private final String playerDataPrefix;
+    private final KeySchema schema;
+
+    private final Map<String, String> proxyMembers = new ConcurrentHashMap<>();
+    private final Map<String, byte[]> proxyMembersBytes = new ConcurrentHashMap<>();
+    private final Cache<UUID, String> playerData = Caffeine.newBuilder().expireAfterAccess(1, TimeUnit.HOURS).build();
+
+    public RedisKeys(String networkId) {
+        this(networkId, KeySchema.LEGACY);
+    }
+
+    public RedisKeys(String networkId, KeySchema schema) {
+        this.schema = schema;
+        this.networkId = networkId;
+        if (schema == KeySchema.HASH_TAGGED) {
+            this.stream = "redisbungee::{" + networkId + "}::stream";
+            this.proxiesPrefix = "redisbungee::{" + networkId + "}::proxies::";
+            // followed by the shard
+            this.playerDataPrefix = "redisbungee::{" + networkId + ":";
+        } else {
+            this.stream = "network-" + networkId + "-redisbungee-stream";
+            this.proxiesPrefix = "redisbungee::" + networkId + "::proxies::";
+            this.playerDataPrefix = "redis-bungee::" + networkId + "::player::";
+        }
+    }
+
+    public KeySchema schema() {
+        return schema;
+    }
+
+    public String stream() {
+        return stream;
+    }
+
+    // streams of a sharded stream topology, see StreamTopology
+    public String heartbeatStream() {
+        return stream + "::heartbeats";
+    }
+
+    public String commandStream() {
+        return stream + "::commands";
+    }
+
+    public String playerStream() {
+        return stream + "::players";
+    }
+
+    // with the hash tagged schema every shard gets its own slot
+    public String channelStream(int shard) {
+        if (schema == KeySchema.HASH_TAGGED) {
+            return "redisbungee::{" + networkId + "#" + shard + "}::stream::channels";
+        }
+        return stream + "::channels::" + shard;
+    }
+
+    // prefix of every proxy key
+    public String proxiesPrefix() {
+        return proxiesPrefix;
+    }
+
+    public String proxyMembers(String proxyId) {
+        return proxyMembers.computeIfAbsent(proxyId, id -> proxiesPrefix + id + PROXY_MEMBERS_SUFFIX);
+    }
+
+    public byte[] proxyMembersBytes(String proxyId) {
+        return proxyMembersBytes.computeIfAbsent(proxyId, id -> SafeEncoder.encode(proxyMembers(id)));
+    }
+
+    // removes the keys of a proxy that left the network
+    public void forgetProxy(String proxyId) {
+        proxyMembers.remove(proxyId);
+        proxyMembersBytes.remove(proxyId);
+    }
+
+    public String playerData(UUID uuid) {
+        return playerData.get(uuid, this::buildPlayerData);
+    }
+
+    private String buildPlayerData(UUID uuid) {
+        if (schema == KeySchema.HASH_TAGGED) {
+            return playerDataPrefix + Math.floorMod(uuid.hashCode(), PLAYER_DATA_SHARDS) + "}::player::" + uuid + PLAYER_DATA_SUFFIX;
+        }
+        return playerDataPrefix + uuid + PLAYER_DATA_SUFFIX;
+    }
+
+    // common prefix of every player data key
+    public String playerDataPrefix() {
+        return playerDataPrefix;
+    }
+
+    // SCAN pattern matching every player data key
+    public String playerDataPattern() {
+        return playerDataPrefix + "*" + PLAYER_DATA_SUFFIX;
+    }
+
+    // SCAN pattern matching every online players set
+    public String proxyMembersPattern() {
+        return proxiesPrefix + "*" + PROXY_MEMBERS_SUFFIX;
+    }
+
+    // player of a player data key, null for any other key
+    public UUID playerOfDataKey(String key) {
+        if (!key.startsWith(playerDataPrefix) || !key.endsWith(PLAYER_DATA_SUFFIX)) return null;
+        int end = key.length() - PLAYER_DATA_SUFFIX.length();
+        // the uuid follows the last separator
+        int start = key.lastIndexOf("::", end - 1) + 2;
+        try {
+            return UUID.fromString(key.substring(start, end));
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+}
@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.imaginarycode.minecraft.redisbungee.api.config.PublishBackpressure;
+import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisPipelineTask;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAddParams;
+import redis.clients.jedis.util.SafeEncoder;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Single writer for the network stream, callers only enqueue entries and the writer thread
+ * sends everything pending as one pipelined batch of XADDs.
+ * Entries are sent in the order they were enqueued, with the binary XADD so field values are stored as is.
+ */
+public class StreamPublisher implements Runnable {
+
+    private record PendingEntry(String stream, Map<String, byte[]> fields, CompletableFuture<StreamEntryID> future) {
+
+    }
+
+    private final RedisBungeePlugin<?> plugin;
+    private final XAddParams xAddParams;
+    private final BlockingQueue<PendingEntry> queue;
+    private final int maxBatchSize;
+    private final PublishBackpressure backpressure;
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    public StreamPublisher(RedisBungeePlugin<?> plugin, XAddParams xAddParams, int queueSize, int maxBatchSize, PublishBackpressure backpressure) {
+        this.plugin = plugin;
+        this.xAddParams = xAddParams;
+        this.queue = new ArrayBlockingQueue<>(queueSize);
+        this.maxBatchSize = maxBatchSize;
+        this.backpressure = backpressure;
+        this.thread = new Thread(this, "RedisBungee-Stream-Publisher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    public CompletableFuture<StreamEntryID> publish(String stream, Map<String, byte[]> fields) {
+        CompletableFuture<StreamEntryID> future = new CompletableFuture<>();
+        if (closed) {
+            future.completeExceptionally(new RejectedExecutionException("stream publisher is closed"));
+            return future;
+        }
+        PendingEntry entry = new PendingEntry(stream, fields, future);
+        switch (backpressure) {
+            case BLOCK -> {
+                try {
+                    queue.put(entry);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    future.completeExceptionally(e);
+                }
+            }
+            case DROP_OLDEST -> {
+                while (!queue.offer(entry)) {
+                    PendingEntry dropped = queue.poll();
+                    if (dropped != null) {
+                        dropped.future().completeExceptionally(new RejectedExecutionException("stream publisher queue is full, payload was dropped"));
+                    }
+                }
+            }
+            case FAIL_FAST -> {
+                if (!queue.offer(entry)) {
+                    future.completeExceptionally(new RejectedExecutionException("stream publisher queue is full"));
+                }
+            }
+        }
+        return future;
+    }
+
+    @Override
+    public void run() {
+        List<PendingEntry> batch = new ArrayList<>(maxBatchSize);
+        while (!closed || !queue.isEmpty()) {
+            try {
+                PendingEntry first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                queue.drainTo(batch, maxBatchSize - 1);
+                flush(batch);
+            } catch (InterruptedException e) {
+                // close() interrupts only after the queue has been drained or timed out
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    // entries are checked one by one, an entry redis rejected does not fail the accepted ones of the same batch
+    private void flush(List<PendingEntry> batch) {
+        List<Response<byte[]>> responses;
+        try {
+            responses = new RedisPipelineTask<List<Response<byte[]>>>(plugin) {
+                @Override
+                public List<Response<byte[]>> doPooledPipeline(Pipeline pipeline) {
+                    List<Response<byte[]>> responses = new ArrayList<>(batch.size());
+                    for (PendingEntry entry : batch) {
+                        responses.add(pipeline.xadd(SafeEncoder.encode(entry.stream()), xAddParams, BinaryStreamEntry.toJedis(entry.fields())));
+                    }
+                    pipeline.sync();
+                    return responses;
+                }
+
+                @Override
+                public List<Response<byte[]>> clusterPipeline(ClusterPipeline pipeline) {
+                    List<Response<byte[]>> responses = new ArrayList<>(batch.size());
+                    for (PendingEntry entry : batch) {
+                        responses.add(pipeline.xadd(SafeEncoder.encode(entry.stream()), xAddParams, BinaryStreamEntry.toJedis(entry.fields())));
+                    }
+                    pipeline.sync();
+                    return responses;
+                }
+            }.call();
+        } catch (Exception e) {
+            plugin.logFatal("unable to publish " + batch.size() + " stream entries", e);
+            for (PendingEntry entry : batch) {
+                entry.future().completeExceptionally(e);
+            }
+            return;
+        }
+        int failed = 0;
+        JedisDataException firstError = null;
+        for (int i = 0; i < batch.size(); i++) {
+            PendingEntry entry = batch.get(i);
+            try {
+                entry.future().complete(new StreamEntryID(SafeEncoder.encode(responses.get(i).get())));
+            } catch (JedisDataException e) {
+                if (firstError == null) firstError = e;
+                failed++;
+                entry.future().completeExceptionally(e);
+            }
+        }
+        if (failed > 0) {
+            plugin.logWarn("{} of {} stream entries were rejected by redis: {}", failed, batch.size(), firstError.getMessage());
+        }
+    }
+
+    // sends what is still queued then stops the writer
+    public void close() {
+        this.closed = true;
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (this.thread.isAlive()) {
+            this.thread.interrupt();
+        }
+        PendingEntry entry;
+        while ((entry = queue.poll()) != null) {
+            entry.future().completeExceptionally(new RejectedExecutionException("stream publisher is closed"));
+        }
+    }
+
+}
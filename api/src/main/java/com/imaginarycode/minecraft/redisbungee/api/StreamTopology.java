@@ -0,0 +1,122 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.PubSubPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.RunCommandPayload;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.Collection;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Which streams the network messages are written to and read from.
+ * <p>
+ * Unsharded everything goes through {@link RedisKeys#stream()}. Sharded, heartbeats, commands and the player
+ * messages of RedisBungee itself get their own stream, and channel messages are spread over a fixed number of
+ * shards by channel name. Proxies read the shards of the channels registered on them only, so the traffic and
+ * decoding work of a proxy grows with the channels it listens to rather than with the network.
+ */
+public final class StreamTopology {
+
+    // channels RedisBungee uses itself, every proxy reads them
+    private static final String INTERNAL_CHANNEL_PREFIX = "redisbungee-";
+
+    private final boolean sharded;
+    private final boolean cluster;
+    private final String heartbeatStream;
+    private final String commandStream;
+    private final String playerStream;
+    private final String[] channelStreams;
+
+    /**
+     * @param channelShards number of channel streams, 0 keeps every message on one stream
+     * @param cluster       whether streams in different slots have to be read separately
+     */
+    public StreamTopology(RedisKeys redisKeys, int channelShards, boolean cluster) {
+        this.sharded = channelShards > 0;
+        this.cluster = cluster;
+        if (sharded) {
+            this.heartbeatStream = redisKeys.heartbeatStream();
+            this.commandStream = redisKeys.commandStream();
+            this.playerStream = redisKeys.playerStream();
+            this.channelStreams = new String[channelShards];
+            for (int i = 0; i < channelShards; i++) {
+                this.channelStreams[i] = redisKeys.channelStream(i);
+            }
+        } else {
+            this.heartbeatStream = redisKeys.stream();
+            this.commandStream = redisKeys.stream();
+            this.playerStream = redisKeys.stream();
+            this.channelStreams = new String[]{redisKeys.stream()};
+        }
+    }
+
+    public boolean sharded() {
+        return sharded;
+    }
+
+    public String heartbeatStream() {
+        return heartbeatStream;
+    }
+
+    public String playerStream() {
+        return playerStream;
+    }
+
+    public String streamFor(AbstractPayload payload) {
+        if (payload instanceof PubSubPayload pubSubPayload) return channelStream(pubSubPayload.channel());
+        if (payload instanceof RunCommandPayload) return commandStream;
+        // heartbeats, deaths and payloads registered by plugins
+        return heartbeatStream;
+    }
+
+    public String channelStream(String channel) {
+        if (isInternal(channel)) return playerStream;
+        return channelStreams[Math.floorMod(channel.hashCode(), channelStreams.length)];
+    }
+
+    /**
+     * @param channels channels registered on this proxy
+     * @return true if messages of the channel are handed to listeners on this proxy
+     */
+    public boolean delivers(String channel, Set<String> channels) {
+        return !sharded || isInternal(channel) || channels.contains(channel);
+    }
+
+    /**
+     * @param channels channels registered on this proxy
+     * @return streams this proxy has to read
+     */
+    public Set<String> subscribedStreams(Collection<String> channels) {
+        Set<String> streams = new LinkedHashSet<>(List.of(heartbeatStream, commandStream, playerStream));
+        for (String channel : channels) {
+            streams.add(channelStream(channel));
+        }
+        return streams;
+    }
+
+    /**
+     * Streams of one reader group are read by a single XREAD, in cluster mode that requires them to be in the same slot.
+     */
+    public int readerGroup(String stream) {
+        return cluster && sharded ? JedisClusterCRC16.getSlot(stream) : 0;
+    }
+
+    private static boolean isInternal(String channel) {
+        return channel.startsWith(INTERNAL_CHANNEL_PREFIX);
+    }
+
+}
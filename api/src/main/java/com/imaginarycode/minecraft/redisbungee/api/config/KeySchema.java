@@ -0,0 +1,22 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api.config;
+
+/**
+ * How the keys of a network are named, every proxy of a network has to use the same schema.
+ */
+public enum KeySchema {
+    // keys used before 0.13.0, spread over every cluster slot
+    LEGACY,
+    // network keys share the {<network id>} hash tag, player data is split over a few {<network id>:<shard>} tags
+    HASH_TAGGED
+}
@@ -0,0 +1,20 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.config;
+
+public enum PublishBackpressure {
+    // caller waits until there is space in the queue
+    BLOCK,
+    // oldest queued payload is dropped and its future fails
+    DROP_OLDEST,
+    // new payload is rejected and its future fails
+    FAIL_FAST
+}
@@ -29,9 +29,19 @@ public class RedisBungeeConfiguration {
 
     private final CommandsConfiguration commandsConfiguration;
     private final String networkId;
-
-
-    public RedisBungeeConfiguration(String networkId, String proxyId, List<String> exemptAddresses, boolean kickWhenOnline, boolean handleReconnectToLastServer, boolean handleMotd, HandleMotdOrder handleMotdOrder, CommandsConfiguration commandsConfiguration) {
+    private final PayloadFormat payloadFormat;
+    private final boolean binaryPlayerSets;
+    private final StreamPublisherConfiguration streamPublisherConfiguration;
+    private final StreamReaderConfiguration streamReaderConfiguration;
+    private final int heartbeatKeepaliveInterval;
+    private final PlayerStateWriterConfiguration playerStateWriterConfiguration;
+    private final UUIDCacheConfiguration uuidCacheConfiguration;
+    private final boolean clientSideCaching;
+    private final KeySchema keySchema;
+    private final StreamShardingConfiguration streamShardingConfiguration;
+
+
+    public RedisBungeeConfiguration(String networkId, String proxyId, List<String> exemptAddresses, boolean kickWhenOnline, boolean handleReconnectToLastServer, boolean handleMotd, HandleMotdOrder handleMotdOrder, CommandsConfiguration commandsConfiguration, PayloadFormat payloadFormat, boolean binaryPlayerSets, StreamPublisherConfiguration streamPublisherConfiguration, StreamReaderConfiguration streamReaderConfiguration, int heartbeatKeepaliveInterval, PlayerStateWriterConfiguration playerStateWriterConfiguration, UUIDCacheConfiguration uuidCacheConfiguration, boolean clientSideCaching, KeySchema keySchema, StreamShardingConfiguration streamShardingConfiguration) {
         this.proxyId = proxyId;
         ImmutableList.Builder<InetAddress> addressBuilder = ImmutableList.builder();
         for (String s : exemptAddresses) {
@@ -44,6 +54,16 @@ public class RedisBungeeConfiguration {
         this.handleMotdOrder = handleMotdOrder;
         this.commandsConfiguration = commandsConfiguration;
         this.networkId = networkId;
+        this.payloadFormat = payloadFormat;
+        this.binaryPlayerSets = binaryPlayerSets;
+        this.streamPublisherConfiguration = streamPublisherConfiguration;
+        this.streamReaderConfiguration = streamReaderConfiguration;
+        this.heartbeatKeepaliveInterval = heartbeatKeepaliveInterval;
+        this.playerStateWriterConfiguration = playerStateWriterConfiguration;
+        this.uuidCacheConfiguration = uuidCacheConfiguration;
+        this.clientSideCaching = clientSideCaching;
+        this.keySchema = keySchema;
+        this.streamShardingConfiguration = streamShardingConfiguration;
     }
 
     public String getProxyId() {
@@ -84,6 +104,26 @@ public class RedisBungeeConfiguration {
                                                  boolean installServerids) {
     }
 
+    public record StreamPublisherConfiguration(int queueSize, int maxBatchSize, PublishBackpressure backpressure) {
+
+    }
+
+    public record StreamReaderConfiguration(boolean consumerGroups, int batchSize) {
+
+    }
+
+    public record PlayerStateWriterConfiguration(int flushWindowMillis, int maxBatchSize) {
+
+    }
+
+    public record UUIDCacheConfiguration(long localMaxSize, int negativeTtl) {
+
+    }
+
+    public record StreamShardingConfiguration(boolean enabled, int channelShards) {
+
+    }
+
     public CommandsConfiguration commandsConfiguration() {
         return commandsConfiguration;
     }
@@ -91,4 +131,44 @@ public class RedisBungeeConfiguration {
     public String networkId() {
         return networkId;
     }
+
+    public PayloadFormat payloadFormat() {
+        return payloadFormat;
+    }
+
+    public boolean binaryPlayerSets() {
+        return binaryPlayerSets;
+    }
+
+    public StreamPublisherConfiguration streamPublisherConfiguration() {
+        return streamPublisherConfiguration;
+    }
+
+    public StreamReaderConfiguration streamReaderConfiguration() {
+        return streamReaderConfiguration;
+    }
+
+    public int heartbeatKeepaliveInterval() {
+        return heartbeatKeepaliveInterval;
+    }
+
+    public PlayerStateWriterConfiguration playerStateWriterConfiguration() {
+        return playerStateWriterConfiguration;
+    }
+
+    public UUIDCacheConfiguration uuidCacheConfiguration() {
+        return uuidCacheConfiguration;
+    }
+
+    public boolean clientSideCaching() {
+        return clientSideCaching;
+    }
+
+    public KeySchema keySchema() {
+        return keySchema;
+    }
+
+    public StreamShardingConfiguration streamShardingConfiguration() {
+        return streamShardingConfiguration;
+    }
 }
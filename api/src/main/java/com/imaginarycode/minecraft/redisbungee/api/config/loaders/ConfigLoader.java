@@ -15,10 +15,15 @@ import com.google.common.reflect.TypeToken;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeeMode;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
 import com.imaginarycode.minecraft.redisbungee.api.config.HandleMotdOrder;
+import com.imaginarycode.minecraft.redisbungee.api.config.KeySchema;
+import com.imaginarycode.minecraft.redisbungee.api.config.PayloadFormat;
+import com.imaginarycode.minecraft.redisbungee.api.config.PublishBackpressure;
 import com.imaginarycode.minecraft.redisbungee.api.config.RedisBungeeConfiguration;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisClusterSummoner;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisPooledSummoner;
+import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisSentineledSummoner;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.Summoner;
+import com.imaginarycode.minecraft.redisbungee.api.util.RedisUtil;
 import ninja.leaping.configurate.ConfigurationNode;
 import ninja.leaping.configurate.objectmapping.ObjectMappingException;
 import ninja.leaping.configurate.yaml.YAMLConfigurationLoader;
@@ -26,9 +31,11 @@ import org.apache.commons.pool2.impl.GenericObjectPoolConfig;
 import redis.clients.jedis.*;
 import redis.clients.jedis.providers.ClusterConnectionProvider;
 import redis.clients.jedis.providers.PooledConnectionProvider;
+import redis.clients.jedis.providers.SentineledConnectionProvider;
 
 import java.io.IOException;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 
 public interface ConfigLoader extends GenericConfigLoader {
@@ -51,6 +58,9 @@ public interface ConfigLoader extends GenericConfigLoader {
         String proxyId = node.getNode("proxy-id").getString("proxy-1");
 
         final int maxConnections = node.getNode("max-redis-connections").getInt(10);
+        final int redisTimeout = Math.max(1, node.getNode("redis-timeout").getInt(5000));
+        final int clusterMaxAttempts = Math.max(1, node.getNode("redis-cluster-max-attempts").getInt(60));
+        final int clusterMaxRetriesDuration = Math.max(1, node.getNode("redis-cluster-max-retries-duration").getInt(10));
         List<String> exemptAddresses;
         try {
             exemptAddresses = node.getNode("exempt-ip-addresses").getList(TypeToken.of(String.class));
@@ -116,6 +126,77 @@ public interface ConfigLoader extends GenericConfigLoader {
         }
         plugin.logInfo("handle motd order: {}", handleMotdOrder);
 
+        PayloadFormat payloadFormat = PayloadFormat.BINARY;
+        String payloadFormatName = node.getNode("stream-payload-format").getString();
+        if (payloadFormatName != null) {
+            try {
+                payloadFormat = PayloadFormat.valueOf(payloadFormatName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                plugin.logWarn("stream payload format value '{}' is unsupported (allowed: {})", payloadFormatName, PayloadFormat.values());
+            }
+        }
+        plugin.logInfo("stream payload format: {}", payloadFormat);
+
+        boolean binaryPlayerSets = node.getNode("binary-player-sets").getBoolean(false);
+        if (binaryPlayerSets && payloadFormat == PayloadFormat.JSON) {
+            plugin.logWarn("binary-player-sets is ignored while the stream payload format is JSON, proxies older than 0.13.0 can't read binary members");
+            binaryPlayerSets = false;
+        }
+        plugin.logInfo("binary player sets: {}", binaryPlayerSets);
+
+        int publisherQueueSize = Math.max(1, node.getNode("stream-publisher", "queue-size").getInt(8192));
+        int publisherMaxBatchSize = Math.max(1, node.getNode("stream-publisher", "max-batch-size").getInt(512));
+        PublishBackpressure publishBackpressure = PublishBackpressure.BLOCK;
+        String publishBackpressureName = node.getNode("stream-publisher", "backpressure").getString();
+        if (publishBackpressureName != null) {
+            try {
+                publishBackpressure = PublishBackpressure.valueOf(publishBackpressureName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                plugin.logWarn("stream publisher backpressure value '{}' is unsupported (allowed: {})", publishBackpressureName, PublishBackpressure.values());
+            }
+        }
+        plugin.logInfo("stream publisher backpressure: {}", publishBackpressure);
+
+        boolean streamConsumerGroups = node.getNode("stream-reader", "consumer-groups").getBoolean(false);
+        int streamReaderBatchSize = Math.max(1, node.getNode("stream-reader", "batch-size").getInt(100));
+        plugin.logInfo("stream consumer groups: {}", streamConsumerGroups);
+
+        int heartbeatKeepaliveInterval = node.getNode("heartbeat-keepalive-interval").getInt(10);
+        if (heartbeatKeepaliveInterval < 1) {
+            plugin.logWarn("heartbeat-keepalive-interval must be at least 1 second, defaulting to 10");
+            heartbeatKeepaliveInterval = 10;
+        }
+        plugin.logInfo("heartbeat keepalive interval: {}s", heartbeatKeepaliveInterval);
+        if (heartbeatKeepaliveInterval > RedisUtil.PROXY_TIMEOUT / 3) {
+            plugin.logWarn("heartbeat-keepalive-interval is above {}s, proxies older than 0.13.0 will consider this proxy dead after {}s without a heartbeat", RedisUtil.PROXY_TIMEOUT / 3, RedisUtil.PROXY_TIMEOUT);
+        }
+
+        int writerFlushWindow = Math.max(0, node.getNode("player-state-writer", "flush-window-ms").getInt(10));
+        int writerMaxBatchSize = Math.max(1, node.getNode("player-state-writer", "max-batch-size").getInt(256));
+
+        long uuidCacheLocalMaxSize = Math.max(0, node.getNode("uuid-cache", "local-max-size").getLong(20000));
+        int uuidCacheNegativeTtl = Math.max(0, node.getNode("uuid-cache", "negative-ttl").getInt(60));
+
+        boolean clientSideCaching = node.getNode("client-side-caching").getBoolean(false);
+        plugin.logInfo("client side caching: {}", clientSideCaching);
+
+        KeySchema keySchema = KeySchema.LEGACY;
+        String keySchemaName = node.getNode("key-schema").getString();
+        if (keySchemaName != null) {
+            try {
+                keySchema = KeySchema.valueOf(keySchemaName.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                plugin.logWarn("key schema value '{}' is unsupported (allowed: {})", keySchemaName, KeySchema.values());
+            }
+        }
+        plugin.logInfo("key schema: {}", keySchema);
+
+        boolean streamSharding = node.getNode("stream-sharding", "enabled").getBoolean(false);
+        int channelShards = Math.max(1, node.getNode("stream-sharding", "channel-shards").getInt(8));
+        if (streamSharding) {
+            plugin.logInfo("stream sharding: {} channel shards", channelShards);
+        }
+
         // commands
         boolean redisBungeeEnabled = node.getNode("commands", "redisbungee", "enabled").getBoolean(true);
         boolean redisBungeeLegacyEnabled =node.getNode("commands", "redisbungee-legacy", "enabled").getBoolean(false);
@@ -151,30 +232,54 @@ public interface ConfigLoader extends GenericConfigLoader {
                         installFind, installGlist, installIp,
                         installLastseen, installPlist, installPproxy,
                         installSendToAll, installServerid, installServerIds)
-        ));
+        ), payloadFormat, binaryPlayerSets, new RedisBungeeConfiguration.StreamPublisherConfiguration(publisherQueueSize, publisherMaxBatchSize, publishBackpressure),
+                new RedisBungeeConfiguration.StreamReaderConfiguration(streamConsumerGroups, streamReaderBatchSize), heartbeatKeepaliveInterval,
+                new RedisBungeeConfiguration.PlayerStateWriterConfiguration(writerFlushWindow, writerMaxBatchSize),
+                new RedisBungeeConfiguration.UUIDCacheConfiguration(uuidCacheLocalMaxSize, uuidCacheNegativeTtl), clientSideCaching, keySchema,
+                new RedisBungeeConfiguration.StreamShardingConfiguration(streamSharding, channelShards));
         Summoner<?> summoner;
         RedisBungeeMode redisBungeeMode;
+        Set<HostAndPort> readReplicas = readHostAndPorts(node.getNode("redis-read-replicas"));
         if (useSSL) {
             plugin.logInfo("Using ssl");
         }
         if (node.getNode("cluster-mode-enabled").getBoolean(false)) {
             plugin.logInfo("RedisBungee MODE: CLUSTER");
-            Set<HostAndPort> hostAndPortSet = new HashSet<>();
+            Set<HostAndPort> hostAndPortSet = readHostAndPorts(node.getNode("redis-cluster-servers"));
             GenericObjectPoolConfig<Connection> poolConfig = new GenericObjectPoolConfig<>();
-            poolConfig.setMaxTotal(maxConnections);
+            // streams in different slots are read by their own blocking reader, each keeps a connection busy
+            poolConfig.setMaxTotal(streamSharding ? maxConnections + 3 + channelShards : maxConnections);
             poolConfig.setBlockWhenExhausted(true);
-            node.getNode("redis-cluster-servers").getChildrenList().forEach((childNode) -> {
-                Map<Object, ? extends ConfigurationNode> hostAndPort = childNode.getChildrenMap();
-                String host = hostAndPort.get("host").getString();
-                int port = hostAndPort.get("port").getInt();
-                hostAndPortSet.add(new HostAndPort(host, port));
-            });
             plugin.logInfo(hostAndPortSet.size() + " cluster nodes were specified");
             if (hostAndPortSet.isEmpty()) {
                 throw new RuntimeException("No redis cluster servers specified");
             }
-            summoner = new JedisClusterSummoner(new ClusterConnectionProvider(hostAndPortSet, DefaultJedisClientConfig.builder().user(redisUsername).password(redisPassword).ssl(useSSL).socketTimeoutMillis(5000).timeoutMillis(10000).build(), poolConfig));
+            summoner = new JedisClusterSummoner(new ClusterConnectionProvider(hostAndPortSet, DefaultJedisClientConfig.builder().user(redisUsername).password(redisPassword).ssl(useSSL).timeoutMillis(10000).socketTimeoutMillis(redisTimeout).build(), poolConfig),
+                    clusterMaxAttempts, Duration.ofSeconds(clusterMaxRetriesDuration));
             redisBungeeMode = RedisBungeeMode.CLUSTER;
+            if (!readReplicas.isEmpty()) {
+                plugin.logWarn("redis-read-replicas are ignored in cluster mode");
+            }
+        } else if (node.getNode("sentinel-mode-enabled").getBoolean(false)) {
+            plugin.logInfo("RedisBungee MODE: SENTINEL");
+            Set<HostAndPort> sentinels = readHostAndPorts(node.getNode("redis-sentinel-servers"));
+            String masterName = node.getNode("redis-sentinel-master-name").getString("mymaster");
+            String sentinelPassword = node.getNode("redis-sentinel-password").getString("");
+            if (sentinelPassword.isEmpty() || sentinelPassword.equals("none")) {
+                sentinelPassword = null;
+            }
+            plugin.logInfo(sentinels.size() + " sentinels were specified for master " + masterName);
+            if (sentinels.isEmpty()) {
+                throw new RuntimeException("No redis sentinel servers specified");
+            }
+            GenericObjectPoolConfig<Connection> poolConfig = new GenericObjectPoolConfig<>();
+            poolConfig.setMaxTotal(maxConnections);
+            poolConfig.setBlockWhenExhausted(true);
+            JedisClientConfig masterClientConfig = DefaultJedisClientConfig.builder().user(redisUsername).password(redisPassword).ssl(useSSL).timeoutMillis(redisTimeout).build();
+            JedisClientConfig sentinelClientConfig = DefaultJedisClientConfig.builder().password(sentinelPassword).ssl(useSSL).timeoutMillis(redisTimeout).build();
+            summoner = new JedisSentineledSummoner(new SentineledConnectionProvider(masterName, masterClientConfig, poolConfig, sentinels, sentinelClientConfig), masterClientConfig,
+                    createReadReplicas(plugin, readReplicas, masterClientConfig, poolConfig));
+            redisBungeeMode = RedisBungeeMode.SENTINEL;
         } else {
             plugin.logInfo("RedisBungee MODE: SINGLE");
             final String redisServer = node.getNode("redis-server").getString("127.0.0.1");
@@ -193,7 +298,10 @@ public interface ConfigLoader extends GenericConfigLoader {
             GenericObjectPoolConfig<Connection> poolConfig = new GenericObjectPoolConfig<>();
             poolConfig.setMaxTotal(maxConnections);
             poolConfig.setBlockWhenExhausted(true);
-            summoner = new JedisPooledSummoner(new PooledConnectionProvider(new ConnectionFactory(new HostAndPort(redisServer, redisPort), DefaultJedisClientConfig.builder().user(redisUsername).timeoutMillis(5000).ssl(useSSL).password(redisPassword).build()), poolConfig), jedisPool);
+            JedisClientConfig clientConfig = DefaultJedisClientConfig.builder().user(redisUsername).timeoutMillis(redisTimeout).ssl(useSSL).password(redisPassword).build();
+            HostAndPort address = new HostAndPort(redisServer, redisPort);
+            summoner = new JedisPooledSummoner(new PooledConnectionProvider(new ConnectionFactory(address, clientConfig), poolConfig), jedisPool,
+                    createReadReplicas(plugin, readReplicas, clientConfig, poolConfig), address, clientConfig);
             redisBungeeMode = RedisBungeeMode.SINGLE;
         }
         plugin.logInfo("Successfully connected to Redis.");
@@ -202,5 +310,28 @@ public interface ConfigLoader extends GenericConfigLoader {
 
     void onConfigLoad(RedisBungeeConfiguration configuration, Summoner<?> summoner, RedisBungeeMode mode);
 
+    private static Set<HostAndPort> readHostAndPorts(ConfigurationNode node) {
+        Set<HostAndPort> hostAndPortSet = new HashSet<>();
+        node.getChildrenList().forEach((childNode) -> {
+            Map<Object, ? extends ConfigurationNode> hostAndPort = childNode.getChildrenMap();
+            String host = hostAndPort.get("host").getString();
+            int port = hostAndPort.get("port").getInt();
+            hostAndPortSet.add(new HostAndPort(host, port));
+        });
+        return hostAndPortSet;
+    }
+
+    // replicas use the credentials and pool settings of the primary
+    private static List<PooledConnectionProvider> createReadReplicas(RedisBungeePlugin<?> plugin, Set<HostAndPort> replicas, JedisClientConfig clientConfig, GenericObjectPoolConfig<Connection> poolConfig) {
+        List<PooledConnectionProvider> providers = new ArrayList<>();
+        for (HostAndPort replica : replicas) {
+            providers.add(new PooledConnectionProvider(new ConnectionFactory(replica, clientConfig), poolConfig));
+        }
+        if (!providers.isEmpty()) {
+            plugin.logInfo("{} read replicas were specified", providers.size());
+        }
+        return providers;
+    }
+
 
 }
@@ -0,0 +1,44 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads;
+
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Converts payloads to and from the fields of a redis stream entry.
+ * Field values are raw bytes, they are written and read with the binary stream commands.
+ * <p>
+ * Every proxy can read all codecs, the configured codec only decides how this proxy publishes.
+ *
+ * @since 0.13.0
+ */
+public interface PayloadCodec {
+
+    record DecodedPayload(UUID dataManagerUUID, AbstractPayload payload, PayloadRegistry.Registration<?> registration) {
+
+    }
+
+    /**
+     * @param fields stream entry fields
+     * @return true if this codec wrote these fields
+     */
+    boolean accepts(Map<String, byte[]> fields);
+
+    Map<String, byte[]> encode(AbstractPayload payload, UUID dataManagerUUID);
+
+    /**
+     * @param fields stream entry fields
+     * @return decoded payload, or null when the payload type is not registered on this proxy
+     */
+    DecodedPayload decode(Map<String, byte[]> fields) throws Exception;
+
+}
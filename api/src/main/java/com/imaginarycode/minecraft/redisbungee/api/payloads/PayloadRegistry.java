@@ -0,0 +1,124 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadInput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadOutput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.DeathPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.HeartbeatPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.PubSubPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.RunCommandPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary.DeathPayloadBinarySerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary.HeartbeatPayloadBinarySerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary.PubSubPayloadBinarySerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary.RunCommandPayloadBinarySerializer;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import static com.google.common.base.Preconditions.checkArgument;
+
+/**
+ * Type id table used to dispatch stream payloads without reflection.
+ * <p>
+ * Ids are sent as a single byte, ids below {@link #FIRST_CUSTOM_ID} are reserved for RedisBungee itself.
+ * Plugins can register their own payloads and send them with {@link com.imaginarycode.minecraft.redisbungee.AbstractRedisBungeeAPI#sendPayload(AbstractPayload)},
+ * every proxy that wants to receive them must register the same id and type.
+ *
+ * @since 0.13.0
+ */
+public class PayloadRegistry {
+
+    public static final int HEARTBEAT_ID = 1;
+    public static final int DEATH_ID = 2;
+    public static final int RUN_COMMAND_ID = 3;
+    public static final int PUBSUB_ID = 4;
+
+    public static final int FIRST_CUSTOM_ID = 32;
+    public static final int MAX_ID = 255;
+
+    public interface BinarySerializer<T extends AbstractPayload> {
+
+        // sender proxy is handled by the codec
+        void write(T payload, BinaryPayloadOutput output);
+
+        T read(String senderProxy, BinaryPayloadInput input);
+
+    }
+
+    public record Registration<T extends AbstractPayload>(int id, Class<T> type, BinarySerializer<T> serializer,
+                                                          Consumer<T> handler) {
+
+        public void write(AbstractPayload payload, BinaryPayloadOutput output) {
+            serializer.write(type.cast(payload), output);
+        }
+
+        public void handle(AbstractPayload payload) {
+            handler.accept(type.cast(payload));
+        }
+
+    }
+
+    private final AtomicReferenceArray<Registration<?>> byId = new AtomicReferenceArray<>(MAX_ID + 1);
+    private final Map<Class<?>, Registration<?>> byType = new ConcurrentHashMap<>();
+    private final Map<String, Registration<?>> byClassName = new ConcurrentHashMap<>();
+
+    // RedisBungee payloads are registered before the registry can be reached by plugins
+    public PayloadRegistry(Consumer<HeartbeatPayload> heartbeatHandler, Consumer<DeathPayload> deathHandler,
+                           Consumer<RunCommandPayload> runCommandHandler, Consumer<PubSubPayload> pubSubHandler) {
+        add(HEARTBEAT_ID, HeartbeatPayload.class, new HeartbeatPayloadBinarySerializer(), heartbeatHandler);
+        add(DEATH_ID, DeathPayload.class, new DeathPayloadBinarySerializer(), deathHandler);
+        add(RUN_COMMAND_ID, RunCommandPayload.class, new RunCommandPayloadBinarySerializer(), runCommandHandler);
+        add(PUBSUB_ID, PubSubPayload.class, new PubSubPayloadBinarySerializer(), pubSubHandler);
+    }
+
+    public <T extends AbstractPayload> void register(int id, Class<T> type, BinarySerializer<T> serializer, Consumer<T> handler) {
+        checkArgument(id >= FIRST_CUSTOM_ID && id <= MAX_ID, "payload id must be between " + FIRST_CUSTOM_ID + " and " + MAX_ID);
+        add(id, type, serializer, handler);
+    }
+
+    private <T extends AbstractPayload> void add(int id, Class<T> type, BinarySerializer<T> serializer, Consumer<T> handler) {
+        Registration<T> registration = new Registration<>(id, type, serializer, handler);
+        if (!byId.compareAndSet(id, null, registration)) {
+            throw new IllegalArgumentException("payload id " + id + " is already registered by " + byId.get(id).type().getName());
+        }
+        if (byType.putIfAbsent(type, registration) != null) {
+            byId.set(id, null);
+            throw new IllegalArgumentException(type.getName() + " is already registered");
+        }
+        byClassName.put(type.getName(), registration);
+    }
+
+    public void unregister(Class<? extends AbstractPayload> type) {
+        Registration<?> registration = byType.get(type);
+        if (registration == null) return;
+        checkArgument(registration.id() >= FIRST_CUSTOM_ID, "RedisBungee payloads can not be unregistered");
+        byType.remove(type);
+        byClassName.remove(type.getName());
+        byId.set(registration.id(), null);
+    }
+
+    public Registration<?> byId(int id) {
+        if (id < 0 || id > MAX_ID) return null;
+        return byId.get(id);
+    }
+
+    public Registration<?> byType(Class<?> type) {
+        return byType.get(type);
+    }
+
+    public Registration<?> byClassName(String className) {
+        return byClassName.get(className);
+    }
+
+}
@@ -0,0 +1,80 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads.codec;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadCodec;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Compact payload format, stored in a single stream field:
+ * <pre>
+ * byte    format version
+ * byte    payload type id, see {@link PayloadRegistry}
+ * 16 byte data manager uuid
+ * string  sender proxy (varint length + utf-8)
+ * ...     payload specific fields
+ * </pre>
+ * The frame is stored as is, without any text encoding.
+ */
+public class BinaryPayloadCodec implements PayloadCodec {
+
+    public static final String FIELD = "binary-payload";
+
+    private static final int VERSION = 1;
+
+    private final PayloadRegistry registry;
+
+    public BinaryPayloadCodec(PayloadRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean accepts(Map<String, byte[]> fields) {
+        return fields.containsKey(FIELD);
+    }
+
+    @Override
+    public Map<String, byte[]> encode(AbstractPayload payload, UUID dataManagerUUID) {
+        PayloadRegistry.Registration<?> registration = registry.byType(payload.getClass());
+        if (registration == null) {
+            throw new IllegalArgumentException("payload " + payload.getClassName() + " is not registered");
+        }
+        BinaryPayloadOutput output = new BinaryPayloadOutput();
+        output.writeByte(VERSION);
+        output.writeByte(registration.id());
+        output.writeUUID(dataManagerUUID);
+        output.writeString(payload.senderProxy());
+        registration.write(payload, output);
+        return Collections.singletonMap(FIELD, output.toByteArray());
+    }
+
+    @Override
+    public DecodedPayload decode(Map<String, byte[]> fields) {
+        BinaryPayloadInput input = new BinaryPayloadInput(fields.get(FIELD));
+        int version = input.readByte();
+        if (version != VERSION) {
+            throw new IllegalStateException("unsupported binary payload version " + version);
+        }
+        PayloadRegistry.Registration<?> registration = registry.byId(input.readByte());
+        if (registration == null) {
+            return null;
+        }
+        UUID dataManagerUUID = input.readUUID();
+        String senderProxy = input.readString();
+        return new DecodedPayload(dataManagerUUID, registration.serializer().read(senderProxy, input), registration);
+    }
+
+}
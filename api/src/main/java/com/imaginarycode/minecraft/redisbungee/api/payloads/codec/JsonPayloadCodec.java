@@ -0,0 +1,76 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads.codec;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadCodec;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.gson.AbstractPayloadSerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.DeathPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.HeartbeatPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.PubSubPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.RunCommandPayload;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.DeathPayloadSerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.HeartbeatPayloadSerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.PubSubPayloadSerializer;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.gson.RunCommandPayloadSerializer;
+
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * The stream format used before 0.13.0, keep using it when the network still has older proxies.
+ */
+public class JsonPayloadCodec implements PayloadCodec {
+
+    private final Gson gson = new GsonBuilder().registerTypeAdapter(AbstractPayload.class, new AbstractPayloadSerializer()).registerTypeAdapter(HeartbeatPayload.class, new HeartbeatPayloadSerializer()).registerTypeAdapter(DeathPayload.class, new DeathPayloadSerializer()).registerTypeAdapter(PubSubPayload.class, new PubSubPayloadSerializer()).registerTypeAdapter(RunCommandPayload.class, new RunCommandPayloadSerializer()).create();
+
+    private final PayloadRegistry registry;
+
+    public JsonPayloadCodec(PayloadRegistry registry) {
+        this.registry = registry;
+    }
+
+    @Override
+    public boolean accepts(Map<String, byte[]> fields) {
+        return fields.containsKey("payload") && fields.containsKey("class");
+    }
+
+    @Override
+    public Map<String, byte[]> encode(AbstractPayload payload, UUID dataManagerUUID) {
+        Map<String, byte[]> data = new HashMap<>();
+        data.put("payload", gson.toJson(payload).getBytes(StandardCharsets.UTF_8));
+        data.put("data-manager-uuid", dataManagerUUID.toString().getBytes(StandardCharsets.UTF_8));
+        data.put("class", payload.getClassName().getBytes(StandardCharsets.UTF_8));
+        return data;
+    }
+
+    @Override
+    public DecodedPayload decode(Map<String, byte[]> fields) {
+        PayloadRegistry.Registration<?> registration = registry.byClassName(field(fields, "class"));
+        if (registration == null) {
+            return null;
+        }
+        UUID payloadDataManagerUUID = UUID.fromString(field(fields, "data-manager-uuid"));
+        AbstractPayload payload = gson.fromJson(field(fields, "payload"), registration.type());
+        return new DecodedPayload(payloadDataManagerUUID, payload, registration);
+    }
+
+    public static String field(Map<String, byte[]> fields, String field) {
+        byte[] value = fields.get(field);
+        return value == null ? null : new String(value, StandardCharsets.UTF_8);
+    }
+
+}
@@ -11,11 +11,23 @@
 package com.imaginarycode.minecraft.redisbungee.api.payloads.proxy;
 
 import com.imaginarycode.minecraft.redisbungee.api.payloads.AbstractPayload;
+import com.imaginarycode.minecraft.redisbungee.api.util.RedisUtil;
 
 public class HeartbeatPayload extends AbstractPayload {
 
-    public record HeartbeatData(long heartbeat, int players) {
+    /**
+     * @param keepaliveInterval seconds between keepalives of the sender, 0 when it did not send it (older than 0.13.0)
+     */
+    public record HeartbeatData(long heartbeat, int players, int keepaliveInterval) {
 
+        public HeartbeatData(long heartbeat, int players) {
+            this(heartbeat, players, 0);
+        }
+
+        // seconds without a heartbeat after which the sender is considered dead, 3 missed keepalives
+        public long timeout() {
+            return Math.max(RedisUtil.PROXY_TIMEOUT, keepaliveInterval * 3L);
+        }
     }
 
     private final HeartbeatData data;
@@ -0,0 +1,28 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadInput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadOutput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.DeathPayload;
+
+public class DeathPayloadBinarySerializer implements PayloadRegistry.BinarySerializer<DeathPayload> {
+
+    @Override
+    public void write(DeathPayload payload, BinaryPayloadOutput output) {
+    }
+
+    @Override
+    public DeathPayload read(String senderProxy, BinaryPayloadInput input) {
+        return new DeathPayload(senderProxy);
+    }
+}
@@ -0,0 +1,34 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadInput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadOutput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.HeartbeatPayload;
+
+public class HeartbeatPayloadBinarySerializer implements PayloadRegistry.BinarySerializer<HeartbeatPayload> {
+
+    @Override
+    public void write(HeartbeatPayload payload, BinaryPayloadOutput output) {
+        output.writeVarLong(payload.data().heartbeat());
+        output.writeVarInt(payload.data().players());
+        output.writeVarInt(payload.data().keepaliveInterval());
+    }
+
+    @Override
+    public HeartbeatPayload read(String senderProxy, BinaryPayloadInput input) {
+        long heartbeat = input.readVarLong();
+        int players = input.readVarInt();
+        int keepaliveInterval = input.hasRemaining() ? input.readVarInt() : 0;
+        return new HeartbeatPayload(senderProxy, new HeartbeatPayload.HeartbeatData(heartbeat, players, keepaliveInterval));
+    }
+}
@@ -0,0 +1,32 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.binary;
+
+import com.imaginarycode.minecraft.redisbungee.api.payloads.PayloadRegistry;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadInput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.codec.BinaryPayloadOutput;
+import com.imaginarycode.minecraft.redisbungee.api.payloads.proxy.RunCommandPayload;
+
+public class RunCommandPayloadBinarySerializer implements PayloadRegistry.BinarySerializer<RunCommandPayload> {
+
+    @Override
+    public void write(RunCommandPayload payload, BinaryPayloadOutput output) {
+        output.writeString(payload.proxyToRun());
+        output.writeString(payload.command());
+    }
+
+    @Override
+    public RunCommandPayload read(String senderProxy, BinaryPayloadInput input) {
+        String proxyToRun = input.readString();
+        String command = input.readString();
+        return new RunCommandPayload(senderProxy, proxyToRun, command);
+    }
+}
@@ -24,7 +24,9 @@ public class HeartbeatPayloadSerializer implements JsonSerializer<HeartbeatPaylo
         String senderProxy = jsonObject.get("proxy").getAsString();
         long heartbeat = jsonObject.get("heartbeat").getAsLong();
         int players = jsonObject.get("players").getAsInt();
-        return new HeartbeatPayload(senderProxy, new HeartbeatPayload.HeartbeatData(heartbeat, players));
+        // not sent by proxies older than 0.13.0
+        int keepaliveInterval = jsonObject.has("keepalive-interval") ? jsonObject.get("keepalive-interval").getAsInt() : 0;
+        return new HeartbeatPayload(senderProxy, new HeartbeatPayload.HeartbeatData(heartbeat, players, keepaliveInterval));
     }
 
     @Override
@@ -33,6 +35,7 @@ public class HeartbeatPayloadSerializer implements JsonSerializer<HeartbeatPaylo
         jsonObject.add("proxy", new JsonPrimitive(src.senderProxy()));
         jsonObject.add("heartbeat", new JsonPrimitive(src.data().heartbeat()));
         jsonObject.add("players", new JsonPrimitive(src.data().players()));
+        jsonObject.add("keepalive-interval", new JsonPrimitive(src.data().keepaliveInterval()));
         return jsonObject;
     }
 }
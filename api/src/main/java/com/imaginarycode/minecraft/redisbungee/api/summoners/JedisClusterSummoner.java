@@ -18,11 +18,16 @@ import java.time.Duration;
 
 public class JedisClusterSummoner implements Summoner<JedisCluster> {
     private final ClusterConnectionProvider clusterConnectionProvider;
+    private final JedisCluster jedisCluster;
 
     public JedisClusterSummoner(ClusterConnectionProvider clusterConnectionProvider) {
+        this(clusterConnectionProvider, 60, Duration.ofSeconds(10));
+    }
+
+    public JedisClusterSummoner(ClusterConnectionProvider clusterConnectionProvider, int maxAttempts, Duration maxTotalRetriesDuration) {
         this.clusterConnectionProvider = clusterConnectionProvider;
+        this.jedisCluster = new NotClosableJedisCluster(this.clusterConnectionProvider, maxAttempts, maxTotalRetriesDuration);
         // test the connection
-        JedisCluster jedisCluster = obtainResource();
         jedisCluster.set("random_data", "0");
         jedisCluster.del("random_data");
     }
@@ -35,7 +40,12 @@ public class JedisClusterSummoner implements Summoner<JedisCluster> {
 
     @Override
     public JedisCluster obtainResource() {
-        return new NotClosableJedisCluster(this.clusterConnectionProvider, 60, Duration.ofSeconds(10));
+        return this.jedisCluster;
+    }
+
+    @Override
+    public PoolStats poolStats() {
+        return PoolStats.of(this.clusterConnectionProvider.getNodes().values());
     }
 
 
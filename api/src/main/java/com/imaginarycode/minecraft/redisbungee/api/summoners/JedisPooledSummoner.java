@@ -10,21 +10,48 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.summoners;
 
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.providers.PooledConnectionProvider;
+import redis.clients.jedis.util.Pool;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
 
 public class JedisPooledSummoner implements Summoner<JedisPooled> {
 
     private final PooledConnectionProvider connectionProvider;
     private final JedisPool jedisPool;
+    private final JedisPooled jedisPooled;
+    private final ReadReplicas readReplicas;
+    private final HostAndPort address;
+    private final JedisClientConfig clientConfig;
 
     public JedisPooledSummoner(PooledConnectionProvider connectionProvider, JedisPool jedisPool) {
+        this(connectionProvider, jedisPool, Collections.emptyList());
+    }
+
+    public JedisPooledSummoner(PooledConnectionProvider connectionProvider, JedisPool jedisPool, List<PooledConnectionProvider> readReplicas) {
+        this(connectionProvider, jedisPool, readReplicas, null, null);
+    }
+
+    /**
+     * @param address      address of the server the provider connects to, used for connections outside the pool
+     * @param clientConfig config of those connections
+     */
+    public JedisPooledSummoner(PooledConnectionProvider connectionProvider, JedisPool jedisPool, List<PooledConnectionProvider> readReplicas, HostAndPort address, JedisClientConfig clientConfig) {
         this.connectionProvider = connectionProvider;
         this.jedisPool = jedisPool;
+        this.readReplicas = new ReadReplicas(readReplicas);
+        this.address = address;
+        this.clientConfig = clientConfig;
+        this.jedisPooled = new NotClosableJedisPooled(this.connectionProvider);
         // test connections
         if (jedisPool != null) {
             try (Jedis jedis = this.jedisPool.getResource()) {
@@ -33,7 +60,6 @@ public class JedisPooledSummoner implements Summoner<JedisPooled> {
             }
 
         }
-        final JedisPooled jedisPooled = this.obtainResource();
         jedisPooled.set("random_data", "0");
         jedisPooled.del("random_data");
 
@@ -41,8 +67,25 @@ public class JedisPooledSummoner implements Summoner<JedisPooled> {
 
     @Override
     public JedisPooled obtainResource() {
-        // create UnClosable JedisPool *disposable*
-        return new NotClosableJedisPooled(this.connectionProvider);
+        return this.jedisPooled;
+    }
+
+    @Override
+    public UnifiedJedis obtainReadResource() {
+        return this.readReplicas.next();
+    }
+
+    @Override
+    public Jedis newPrimaryClient() {
+        if (this.address == null) return null;
+        return new Jedis(this.address, this.clientConfig);
+    }
+
+    @Override
+    public PoolStats poolStats() {
+        List<Pool<?>> pools = new ArrayList<>(this.readReplicas.pools());
+        pools.add(this.connectionProvider.getPool());
+        return PoolStats.of(pools);
     }
 
     public JedisPool getCompatibilityJedisPool() {
@@ -55,6 +98,6 @@ public class JedisPooledSummoner implements Summoner<JedisPooled> {
             this.jedisPool.close();
         }
         this.connectionProvider.close();
-
+        this.readReplicas.close();
     }
 }
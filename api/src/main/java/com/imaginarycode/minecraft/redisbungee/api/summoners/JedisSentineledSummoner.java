@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api.summoners;
+
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisClientConfig;
+import redis.clients.jedis.JedisSentineled;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.providers.PooledConnectionProvider;
+import redis.clients.jedis.providers.SentineledConnectionProvider;
+import redis.clients.jedis.util.Pool;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Connects to the primary announced by the sentinels and switches over to the new primary after a failover.
+ */
+public class JedisSentineledSummoner implements Summoner<JedisSentineled> {
+    private final SentineledConnectionProvider connectionProvider;
+    private final JedisSentineled jedisSentineled;
+    private final ReadReplicas readReplicas;
+    private final JedisClientConfig masterClientConfig;
+
+    public JedisSentineledSummoner(SentineledConnectionProvider connectionProvider) {
+        this(connectionProvider, null, Collections.emptyList());
+    }
+
+    /**
+     * @param masterClientConfig config of connections to the master outside the pool
+     */
+    public JedisSentineledSummoner(SentineledConnectionProvider connectionProvider, JedisClientConfig masterClientConfig, List<PooledConnectionProvider> readReplicas) {
+        this.connectionProvider = connectionProvider;
+        this.masterClientConfig = masterClientConfig;
+        this.jedisSentineled = new NotClosableJedisSentineled(this.connectionProvider);
+        this.readReplicas = new ReadReplicas(readReplicas);
+        // test the connection
+        jedisSentineled.set("random_data", "0");
+        jedisSentineled.del("random_data");
+    }
+
+    @Override
+    public JedisSentineled obtainResource() {
+        return this.jedisSentineled;
+    }
+
+    @Override
+    public UnifiedJedis obtainReadResource() {
+        return this.readReplicas.next();
+    }
+
+    @Override
+    public Jedis newPrimaryClient() {
+        if (this.masterClientConfig == null) return null;
+        return new Jedis(this.connectionProvider.getCurrentMaster(), this.masterClientConfig);
+    }
+
+    @Override
+    public PoolStats poolStats() {
+        List<Pool<?>> pools = new ArrayList<>(this.readReplicas.pools());
+        // the pool of the current primary
+        for (Object pool : this.connectionProvider.getConnectionMap().values()) {
+            if (pool instanceof Pool<?> primary) pools.add(primary);
+        }
+        return PoolStats.of(pools);
+    }
+
+    @Override
+    public void close() throws IOException {
+        this.readReplicas.close();
+        this.connectionProvider.close();
+    }
+
+}
@@ -0,0 +1,41 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.summoners;
+
+import redis.clients.jedis.util.Pool;
+
+import java.util.Collection;
+
+/**
+ * Connection pool usage, in cluster mode counts are summed over every node and wait times are of the worst node.
+ *
+ * @param active          connections currently borrowed
+ * @param idle            connections waiting in the pool
+ * @param waiters         threads blocked waiting for a connection
+ * @param meanWaitMillis  mean time a borrow waited for a connection
+ * @param maxWaitMillis   longest time a borrow waited for a connection
+ */
+public record PoolStats(int active, int idle, int waiters, long meanWaitMillis, long maxWaitMillis) {
+
+    static PoolStats of(Collection<? extends Pool<?>> pools) {
+        int active = 0, idle = 0, waiters = 0;
+        long meanWait = 0, maxWait = 0;
+        for (Pool<?> pool : pools) {
+            active += pool.getNumActive();
+            idle += pool.getNumIdle();
+            waiters += pool.getNumWaiters();
+            meanWait = Math.max(meanWait, pool.getMeanBorrowWaitTimeMillis());
+            maxWait = Math.max(maxWait, pool.getMaxBorrowWaitTimeMillis());
+        }
+        return new PoolStats(active, idle, waiters, meanWait, maxWait);
+    }
+
+}
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.summoners;
+
+import redis.clients.jedis.JedisPooled;
+import redis.clients.jedis.providers.PooledConnectionProvider;
+import redis.clients.jedis.util.Pool;
+
+import java.io.Closeable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Replicas of the primary, read only lookups are spread over them round robin.
+ */
+final class ReadReplicas implements Closeable {
+
+    private final List<PooledConnectionProvider> providers;
+    private final List<JedisPooled> clients = new ArrayList<>();
+    private final AtomicInteger next = new AtomicInteger();
+
+    ReadReplicas(List<PooledConnectionProvider> providers) {
+        this.providers = List.copyOf(providers);
+        for (PooledConnectionProvider provider : this.providers) {
+            this.clients.add(new NotClosableJedisPooled(provider));
+        }
+    }
+
+    // null when there are no replicas
+    JedisPooled next() {
+        if (clients.isEmpty()) return null;
+        return clients.get(Math.floorMod(next.getAndIncrement(), clients.size()));
+    }
+
+    List<Pool<?>> pools() {
+        List<Pool<?>> pools = new ArrayList<>();
+        for (PooledConnectionProvider provider : providers) {
+            pools.add(provider.getPool());
+        }
+        return pools;
+    }
+
+    @Override
+    public void close() {
+        providers.forEach(PooledConnectionProvider::close);
+    }
+
+}
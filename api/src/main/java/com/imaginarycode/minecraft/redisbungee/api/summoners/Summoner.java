@@ -10,6 +10,7 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.summoners;
 
+import redis.clients.jedis.Jedis;
 import redis.clients.jedis.UnifiedJedis;
 
 import java.io.Closeable;
@@ -23,6 +24,26 @@ import java.io.Closeable;
  */
 public interface Summoner<P extends UnifiedJedis> extends Closeable {
 
+    /**
+     * @return the shared client of this summoner, it is thread safe and must not be closed by callers
+     */
     P obtainResource();
 
+    /**
+     * @return a read replica for lookups that tolerate slightly stale data, or null when no replicas are configured
+     */
+    default UnifiedJedis obtainReadResource() {
+        return null;
+    }
+
+    /**
+     * @return a new connection to the primary outside the pool, closed by the caller,
+     * or null when there is no single primary
+     */
+    default Jedis newPrimaryClient() {
+        return null;
+    }
+
+    PoolStats poolStats();
+
 }
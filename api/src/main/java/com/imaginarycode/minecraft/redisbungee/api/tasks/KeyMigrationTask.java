@@ -0,0 +1,182 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+
+package com.imaginarycode.minecraft.redisbungee.api.tasks;
+
+import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+import com.imaginarycode.minecraft.redisbungee.api.RedisKeys;
+import com.imaginarycode.minecraft.redisbungee.api.config.KeySchema;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.ScanIteration;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Moves the player data written under the other {@link KeySchema} to the keys of the configured one
+ * and removes the stream and online players sets of the other schema, once every proxy of the network
+ * uses the configured schema.
+ * <p>
+ * Keys are found with SCAN on every node, fields are copied with HSETNX so values written under the configured schema
+ * in the meantime are kept, then the old key is deleted. Running it again is harmless, so a cancelled
+ * or crashed run is simply started again. The task sleeps between chunks to stay under {@link #KEYS_PER_SECOND}
+ * and only one proxy of the network can run it at a time.
+ */
+public class KeyMigrationTask extends RedisTask<Void> {
+
+    private static final String LOCK_KEY = "redisbungee::key-migration::lock";
+    private static final String CANCEL_KEY = "redisbungee::key-migration::cancel";
+    private static final int LOCK_TTL = 60;
+    private static final int CHUNK_SIZE = 500;
+    private static final int KEYS_PER_SECOND = 5000;
+    private static final int PROGRESS_EVERY = 20;
+
+    private static final String RENEW_SCRIPT = "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) else return 0 end";
+    private static final String RELEASE_SCRIPT = "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end";
+
+    private final RedisBungeePlugin<?> plugin;
+
+    public KeyMigrationTask(RedisBungeePlugin<?> plugin) {
+        super(plugin);
+        this.plugin = plugin;
+    }
+
+    /**
+     * @return true if a migration is running on any proxy of the network
+     */
+    public static boolean isRunning(UnifiedJedis unifiedJedis) {
+        return unifiedJedis.exists(LOCK_KEY);
+    }
+
+    /**
+     * Asks the running migration to stop after its current chunk.
+     */
+    public static void cancel(UnifiedJedis unifiedJedis) {
+        unifiedJedis.setex(CANCEL_KEY, LOCK_TTL, "1");
+    }
+
+    @Override
+    public Void unifiedJedisTask(UnifiedJedis unifiedJedis) {
+        final RedisKeys target = plugin.proxyDataManager().redisKeys();
+        final RedisKeys source = new RedisKeys(plugin.configuration().networkId(), target.schema() == KeySchema.LEGACY ? KeySchema.HASH_TAGGED : KeySchema.LEGACY);
+        final String token = plugin.proxyDataManager().proxyId() + ":" + UUID.randomUUID();
+        try {
+            if (!"OK".equals(unifiedJedis.set(LOCK_KEY, token, SetParams.setParams().nx().ex(LOCK_TTL)))) {
+                plugin.logWarn("key migration is already running on {}", String.valueOf(unifiedJedis.get(LOCK_KEY)).split(":")[0]);
+                return null;
+            }
+            unifiedJedis.del(CANCEL_KEY);
+            plugin.logInfo("Migrating player data from the {} key schema to {}", source.schema(), target.schema());
+
+            final long minChunkNanos = TimeUnit.SECONDS.toNanos(1) * CHUNK_SIZE / KEYS_PER_SECOND;
+            long migrated = 0;
+            int chunks = 0;
+            ScanIteration iteration = unifiedJedis.scanIteration(CHUNK_SIZE, source.playerDataPattern(), "hash");
+            while (!iteration.isIterationCompleted()) {
+                long start = System.nanoTime();
+                ScanResult<String> result = iteration.nextBatch();
+                Map<String, UUID> players = new HashMap<>();
+                for (String key : result.getResult()) {
+                    UUID uuid = source.playerOfDataKey(key);
+                    if (uuid != null) players.put(key, uuid);
+                }
+                if (!players.isEmpty()) {
+                    migrate(unifiedJedis, target, players);
+                }
+                migrated += players.size();
+
+                // keep the lock while making progress
+                if (!Long.valueOf(1).equals(unifiedJedis.eval(RENEW_SCRIPT, List.of(LOCK_KEY), List.of(token, String.valueOf(LOCK_TTL))))) {
+                    plugin.logWarn("lost the key migration lock, stopping");
+                    return null;
+                }
+                if (unifiedJedis.exists(CANCEL_KEY)) {
+                    unifiedJedis.del(CANCEL_KEY);
+                    plugin.logInfo("key migration cancelled after {} players", migrated);
+                    return null;
+                }
+                if (++chunks % PROGRESS_EVERY == 0) {
+                    plugin.logInfo("key migration: migrated {} players", migrated);
+                }
+
+                long sleep = minChunkNanos - (System.nanoTime() - start);
+                if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+            }
+
+            // nothing reads these anymore, proxies rebuild their online players set under the configured schema
+            long removed = unifiedJedis.del(source.stream());
+            // streams of the sharded stream topology
+            removed += unifiedJedis.del(source.heartbeatStream());
+            removed += unifiedJedis.del(source.commandStream());
+            removed += unifiedJedis.del(source.playerStream());
+            for (int shard = 0; shard < plugin.configuration().streamShardingConfiguration().channelShards(); shard++) {
+                removed += unifiedJedis.del(source.channelStream(shard));
+            }
+            ScanIteration sets = unifiedJedis.scanIteration(CHUNK_SIZE, source.proxyMembersPattern(), "set");
+            while (!sets.isIterationCompleted()) {
+                for (String key : sets.nextBatch().getResult()) {
+                    removed += unifiedJedis.del(key);
+                }
+            }
+            plugin.logInfo("migrated {} players, removed {} stream and online players keys", migrated, removed);
+        } catch (JedisException e) {
+            plugin.logFatal("There was an error migrating keys", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                unifiedJedis.eval(RELEASE_SCRIPT, List.of(LOCK_KEY), List.of(token));
+            } catch (JedisException ignored) {
+            }
+        }
+        return null;
+    }
+
+    private void migrate(UnifiedJedis unifiedJedis, RedisKeys target, Map<String, UUID> players) {
+        new RedisPipelineTask<Void>(plugin) {
+            @Override
+            public Void doPooledPipeline(Pipeline pipeline) {
+                copyAll(pipeline, target, players);
+                return null;
+            }
+
+            @Override
+            public Void clusterPipeline(ClusterPipeline pipeline) {
+                copyAll(pipeline, target, players);
+                return null;
+            }
+        }.unifiedJedisTask(unifiedJedis);
+    }
+
+    private static void copyAll(PipelineBase pipeline, RedisKeys target, Map<String, UUID> players) {
+        Map<String, Response<Map<String, String>>> responses = new HashMap<>();
+        players.keySet().forEach(key -> responses.put(key, pipeline.hgetAll(key)));
+        pipeline.sync();
+        responses.forEach((key, response) -> {
+            String targetKey = target.playerData(players.get(key));
+            // NX so data written under the configured schema in the meantime is kept
+            response.get().forEach((field, value) -> pipeline.hsetnx(targetKey, field, value));
+            pipeline.del(key);
+        });
+        pipeline.sync();
+    }
+
+}
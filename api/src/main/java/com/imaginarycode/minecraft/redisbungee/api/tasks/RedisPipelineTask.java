@@ -32,6 +32,10 @@ public abstract class RedisPipelineTask<T> extends RedisTask<T> {
             try (Pipeline pipeline = pooled.pipelined()) {
                 return doPooledPipeline(pipeline);
             }
+        } else if (unifiedJedis instanceof JedisSentineled sentineled) {
+            try (Pipeline pipeline = sentineled.pipelined()) {
+                return doPooledPipeline(pipeline);
+            }
         } else if (unifiedJedis instanceof JedisCluster jedisCluster) {
             try (ClusterPipeline pipeline = jedisCluster.pipelined()) {
                 return clusterPipeline(pipeline);
@@ -15,8 +15,10 @@ import com.imaginarycode.minecraft.redisbungee.api.RedisBungeeMode;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisClusterSummoner;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisPooledSummoner;
+import com.imaginarycode.minecraft.redisbungee.api.summoners.JedisSentineledSummoner;
 import com.imaginarycode.minecraft.redisbungee.api.summoners.Summoner;
 import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisConnectionException;
 
 import java.util.concurrent.Callable;
 
@@ -47,12 +49,30 @@ public abstract class RedisTask<V> implements Runnable, Callable<V> {
 
     public abstract V unifiedJedisTask(UnifiedJedis unifiedJedis);
 
+    /**
+     * Read only tasks go to a read replica when the summoner has any, replicas may lag behind the primary slightly
+     * so only lookups that tolerate that should return true.
+     */
+    protected boolean readOnly() {
+        return false;
+    }
+
     @Override
     public void run() {
         this.execute();
     }
 
     public V execute() {
+        if (readOnly()) {
+            UnifiedJedis replica = summoner.obtainReadResource();
+            if (replica != null) {
+                try {
+                    return this.unifiedJedisTask(replica);
+                } catch (JedisConnectionException e) {
+                    // the replica is unreachable, ask the primary instead
+                }
+            }
+        }
         // JedisCluster, JedisPooled in fact is just UnifiedJedis does not need new instance since its single instance anyway.
         if (mode == RedisBungeeMode.SINGLE) {
             JedisPooledSummoner jedisSummoner = (JedisPooledSummoner) summoner;
@@ -60,6 +80,9 @@ public abstract class RedisTask<V> implements Runnable, Callable<V> {
         } else if (mode == RedisBungeeMode.CLUSTER) {
             JedisClusterSummoner jedisClusterSummoner = (JedisClusterSummoner) summoner;
             return this.unifiedJedisTask(jedisClusterSummoner.obtainResource());
+        } else if (mode == RedisBungeeMode.SENTINEL) {
+            JedisSentineledSummoner jedisSentineledSummoner = (JedisSentineledSummoner) summoner;
+            return this.unifiedJedisTask(jedisSentineledSummoner.obtainResource());
         }
         return null;
     }
@@ -10,18 +10,46 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.tasks;
 
-import com.google.gson.Gson;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
 import com.imaginarycode.minecraft.redisbungee.api.util.uuid.CachedUUIDEntry;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
 import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.SetParams;
+import redis.clients.jedis.resps.ScanResult;
 
 import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
-
+/**
+ * Migrates the legacy {@code uuid-cache} hash to the per key layout of {@link CachedUUIDEntry}.
+ * <p>
+ * The hash is walked with HSCAN so memory stays bounded by the chunk size, entries that are still valid are copied
+ * to their own keys with the remaining time to live, then every scanned field is removed from the hash, expired or not.
+ * The task sleeps between chunks to keep the scan rate under {@link #ENTRIES_PER_SECOND}.
+ * Only one proxy in the whole network can run it at a time, the cursor is checkpointed in redis
+ * so a cancelled or crashed run continues where it stopped.
+ */
 public class UUIDCleanupTask extends RedisTask<Void>{
 
-    private final Gson gson = new Gson();
+    private static final String LOCK_KEY = "redisbungee::uuid-cache-cleanup::lock";
+    private static final String CURSOR_KEY = "redisbungee::uuid-cache-cleanup::cursor";
+    private static final String CANCEL_KEY = "redisbungee::uuid-cache-cleanup::cancel";
+    private static final int LOCK_TTL = 60;
+    private static final int CHUNK_SIZE = 500;
+    private static final int ENTRIES_PER_SECOND = 5000;
+    private static final int PROGRESS_EVERY = 20;
+
+    private static final String RENEW_SCRIPT = "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('EXPIRE', KEYS[1], ARGV[2]) else return 0 end";
+    private static final String RELEASE_SCRIPT = "if redis.call('GET', KEYS[1]) == ARGV[1] then return redis.call('DEL', KEYS[1]) else return 0 end";
+
     private final RedisBungeePlugin<?> plugin;
 
     public UUIDCleanupTask(RedisBungeePlugin<?> plugin) {
@@ -29,28 +57,120 @@ public class UUIDCleanupTask extends RedisTask<Void>{
         this.plugin = plugin;
     }
 
+    /**
+     * @return true if a cleanup is running on any proxy of the network
+     */
+    public static boolean isRunning(UnifiedJedis unifiedJedis) {
+        return unifiedJedis.exists(LOCK_KEY);
+    }
+
+    /**
+     * Asks the running cleanup to stop after its current chunk, the next run continues from the checkpoint.
+     */
+    public static void cancel(UnifiedJedis unifiedJedis) {
+        unifiedJedis.setex(CANCEL_KEY, LOCK_TTL, "1");
+    }
+
     // this code is inspired from https://github.com/minecrafter/redisbungeeclean
     @Override
     public Void unifiedJedisTask(UnifiedJedis unifiedJedis) {
+        final String token = plugin.proxyDataManager().proxyId() + ":" + UUID.randomUUID();
         try {
-            final long number = unifiedJedis.hlen("uuid-cache");
-            plugin.logInfo("Found {} entries", number);
-            ArrayList<String> fieldsToRemove = new ArrayList<>();
-            unifiedJedis.hgetAll("uuid-cache").forEach((field, data) -> {
-                CachedUUIDEntry cachedUUIDEntry = gson.fromJson(data, CachedUUIDEntry.class);
-                if (cachedUUIDEntry.expired()) {
-                    fieldsToRemove.add(field);
-                }
-            });
-            if (!fieldsToRemove.isEmpty()) {
-                unifiedJedis.hdel("uuid-cache", fieldsToRemove.toArray(new String[0]));
+            if (!"OK".equals(unifiedJedis.set(LOCK_KEY, token, SetParams.setParams().nx().ex(LOCK_TTL)))) {
+                plugin.logWarn("uuid cache cleanup is already running on {}", String.valueOf(unifiedJedis.get(LOCK_KEY)).split(":")[0]);
+                return null;
             }
-          plugin.logInfo("deleted {} entries", fieldsToRemove.size());
+            unifiedJedis.del(CANCEL_KEY);
+            String cursor = unifiedJedis.get(CURSOR_KEY);
+            if (cursor == null) cursor = ScanParams.SCAN_POINTER_START;
+            final long number = unifiedJedis.hlen(CachedUUIDEntry.LEGACY_HASH);
+            plugin.logInfo("Found {} entries{}", number, cursor.equals(ScanParams.SCAN_POINTER_START) ? "" : ", resuming from the last checkpoint");
+
+            final ScanParams scanParams = new ScanParams().count(CHUNK_SIZE);
+            final long minChunkNanos = TimeUnit.SECONDS.toNanos(1) * CHUNK_SIZE / ENTRIES_PER_SECOND;
+            long scanned = 0;
+            long migrated = 0;
+            int chunks = 0;
+            do {
+                long start = System.nanoTime();
+                ScanResult<Map.Entry<String, String>> result = unifiedJedis.hscan(CachedUUIDEntry.LEGACY_HASH, cursor, scanParams);
+                List<String> fields = new ArrayList<>(result.getResult().size());
+                Map<String, CachedUUIDEntry> liveEntries = new HashMap<>();
+                for (Map.Entry<String, String> entry : result.getResult()) {
+                    fields.add(entry.getKey());
+                    CachedUUIDEntry cachedUUIDEntry = CachedUUIDEntry.fromLegacyJson(entry.getValue());
+                    // unreadable entries are useless anyway
+                    if (cachedUUIDEntry != null && cachedUUIDEntry.remainingMillis() > 0) {
+                        liveEntries.put(entry.getKey(), cachedUUIDEntry);
+                    }
+                }
+                if (!liveEntries.isEmpty()) {
+                    migrate(unifiedJedis, liveEntries);
+                }
+                if (!fields.isEmpty()) {
+                    unifiedJedis.hdel(CachedUUIDEntry.LEGACY_HASH, fields.toArray(new String[0]));
+                }
+                scanned += fields.size();
+                migrated += liveEntries.size();
+                cursor = result.getCursor();
+
+                // checkpoint and keep the lock while making progress
+                unifiedJedis.set(CURSOR_KEY, cursor);
+                if (!Long.valueOf(1).equals(unifiedJedis.eval(RENEW_SCRIPT, List.of(LOCK_KEY), List.of(token, String.valueOf(LOCK_TTL))))) {
+                    plugin.logWarn("lost the uuid cache cleanup lock, stopping");
+                    return null;
+                }
+                if (unifiedJedis.exists(CANCEL_KEY)) {
+                    unifiedJedis.del(CANCEL_KEY);
+                    plugin.logInfo("uuid cache migration cancelled after {} entries, migrated {} entries", scanned, migrated);
+                    return null;
+                }
+                if (++chunks % PROGRESS_EVERY == 0) {
+                    plugin.logInfo("uuid cache migration: scanned {}/{} entries, migrated {} entries", scanned, number, migrated);
+                }
+
+                long sleep = minChunkNanos - (System.nanoTime() - start);
+                if (sleep > 0) TimeUnit.NANOSECONDS.sleep(sleep);
+            } while (!cursor.equals(ScanParams.SCAN_POINTER_START));
+            unifiedJedis.del(CURSOR_KEY);
+            plugin.logInfo("migrated {} entries, dropped {} expired entries", migrated, scanned - migrated);
         } catch (JedisException e) {
             plugin.logFatal("There was an error fetching information", e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                unifiedJedis.eval(RELEASE_SCRIPT, List.of(LOCK_KEY), List.of(token));
+            } catch (JedisException ignored) {
+            }
         }
         return null;
     }
 
+    // field is either the lowercase name or the uuid, each one becomes its own key
+    private void migrate(UnifiedJedis unifiedJedis, Map<String, CachedUUIDEntry> entries) {
+        new RedisPipelineTask<Void>(plugin) {
+            @Override
+            public Void doPooledPipeline(Pipeline pipeline) {
+                setAll(pipeline, entries);
+                return null;
+            }
+
+            @Override
+            public Void clusterPipeline(ClusterPipeline pipeline) {
+                setAll(pipeline, entries);
+                return null;
+            }
+        }.unifiedJedisTask(unifiedJedis);
+    }
+
+    private static void setAll(PipelineBase pipeline, Map<String, CachedUUIDEntry> entries) {
+        entries.forEach((field, entry) -> {
+            String key = field.equals(entry.getUuid().toString()) ? CachedUUIDEntry.uuidKey(entry.getUuid()) : CachedUUIDEntry.nameKey(field);
+            // NX so entries written by the new layout in the meantime are kept
+            pipeline.set(key, entry.serialize(), SetParams.setParams().nx().px(entry.remainingMillis()));
+        });
+        pipeline.sync();
+    }
 
-}
\ No newline at end of file
+}
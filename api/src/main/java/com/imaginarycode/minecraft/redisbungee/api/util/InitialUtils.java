@@ -12,6 +12,7 @@ package com.imaginarycode.minecraft.redisbungee.api.util;
 
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
 import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisTask;
+import com.imaginarycode.minecraft.redisbungee.api.util.uuid.CachedUUIDEntry;
 import redis.clients.jedis.Protocol;
 import redis.clients.jedis.UnifiedJedis;
 
@@ -32,9 +33,9 @@ public class InitialUtils {
                             plugin.logFatal("Your version of Redis (" + version + ") is not at least version " + RedisUtil.MAJOR_VERSION + "." + RedisUtil.MINOR_VERSION + " RedisBungee requires a newer version of Redis.");
                             throw new RuntimeException("Unsupported Redis version detected");
                         }
-                        long uuidCacheSize = unifiedJedis.hlen("uuid-cache");
-                        if (uuidCacheSize > 750000) {
-                            plugin.logInfo("Looks like you have a really big UUID cache! Run '/rb clean' to remove expired cache entries");
+                        long uuidCacheSize = unifiedJedis.hlen(CachedUUIDEntry.LEGACY_HASH);
+                        if (uuidCacheSize > 0) {
+                            plugin.logInfo("Found {} entries in the old UUID cache layout, run '/rb clean' to migrate them", uuidCacheSize);
                         }
                         break;
                     }
@@ -0,0 +1,56 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.util;
+
+import com.imaginarycode.minecraft.redisbungee.api.RedisBungeeMode;
+import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Loads the server side functions in {@code functions/redisbungee.lua}.
+ * Functions require Redis 7 and can't be used in cluster mode since they touch keys in different slots,
+ * callers have to fall back to pipelines when they are not available.
+ */
+public class RedisFunctions {
+
+    public static final String PLAYER_JOIN = "redisbungee_player_join";
+    public static final String PLAYER_QUIT = "redisbungee_player_quit";
+    public static final String LOGIN_CHECK = "redisbungee_login_check";
+
+    private static final String LIBRARY = "functions/redisbungee.lua";
+
+    public static boolean load(RedisBungeePlugin<?> plugin, UnifiedJedis unifiedJedis) {
+        if (plugin.getRedisBungeeMode() == RedisBungeeMode.CLUSTER) {
+            return false;
+        }
+        try (InputStream in = RedisFunctions.class.getClassLoader().getResourceAsStream(LIBRARY)) {
+            if (in == null) throw new IOException(LIBRARY + " is missing");
+            unifiedJedis.functionLoadReplace(new String(in.readAllBytes(), StandardCharsets.UTF_8));
+            plugin.logInfo("Loaded redis functions");
+            return true;
+        } catch (Exception e) {
+            plugin.logWarn("Unable to load redis functions, falling back to pipelines (requires Redis 7): {}", e.getMessage());
+            return false;
+        }
+    }
+
+    // redis answers like this after it lost the functions, e.g. a restart without persistence
+    public static boolean isMissing(JedisDataException e) {
+        String message = e.getMessage();
+        return message != null && (message.startsWith("NOSCRIPT") || message.contains("Function not found"));
+    }
+
+}
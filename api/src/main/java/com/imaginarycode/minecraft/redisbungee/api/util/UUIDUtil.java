@@ -0,0 +1,67 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.util;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Collection;
+import java.util.UUID;
+
+/**
+ * 16 byte big endian form of uuids, used as member of the proxy online players sets when binary-player-sets is enabled.
+ */
+public final class UUIDUtil {
+
+    private UUIDUtil() {
+    }
+
+    public static byte[] toBytes(UUID uuid) {
+        byte[] bytes = new byte[16];
+        long msb = uuid.getMostSignificantBits();
+        long lsb = uuid.getLeastSignificantBits();
+        for (int i = 0; i < 8; i++) {
+            bytes[i] = (byte) (msb >>> (56 - (i << 3)));
+            bytes[i + 8] = (byte) (lsb >>> (56 - (i << 3)));
+        }
+        return bytes;
+    }
+
+    public static UUID fromBytes(byte[] bytes) {
+        long msb = 0;
+        long lsb = 0;
+        for (int i = 0; i < 8; i++) {
+            msb = (msb << 8) | (bytes[i] & 0xFF);
+            lsb = (lsb << 8) | (bytes[i + 8] & 0xFF);
+        }
+        return new UUID(msb, lsb);
+    }
+
+    // sets written by proxies older than 0.13.0 contain the uuid string
+    public static UUID fromMember(byte[] member) {
+        if (member.length == 16) return fromBytes(member);
+        return UUID.fromString(new String(member, StandardCharsets.US_ASCII));
+    }
+
+    public static byte[] toStringBytes(UUID uuid) {
+        return uuid.toString().getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // both forms of every uuid, for removing members whatever form they were written in
+    public static byte[][] toMembers(Collection<UUID> uuids) {
+        byte[][] members = new byte[uuids.size() * 2][];
+        int i = 0;
+        for (UUID uuid : uuids) {
+            members[i++] = toBytes(uuid);
+            members[i++] = toStringBytes(uuid);
+        }
+        return members;
+    }
+
+}
@@ -10,20 +10,89 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.util.uuid;
 
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+
 import java.util.Calendar;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 
+/**
+ * Name and uuid of a player, stored in redis under both {@link #nameKey(String)} and {@link #uuidKey(UUID)}
+ * as {@code <expiry millis>;<uuid>;<name>}, the keys expire natively so nothing has to clean them up.
+ */
 public class CachedUUIDEntry {
+
+    public static final long TTL = TimeUnit.DAYS.toMillis(3);
+
+    // hash used before 0.13.0, migrated by UUIDCleanupTask
+    public static final String LEGACY_HASH = "uuid-cache";
+
+    // stored instead of an entry for names and uuids that don't exist
+    public static final String NOT_FOUND_VALUE = "-";
+
+    // common prefix of the name and uuid keys
+    public static final String KEY_PREFIX = "redisbungee::uuid-cache::";
+    static final String NAME_PREFIX = KEY_PREFIX + "name::";
+    static final String UUID_PREFIX = KEY_PREFIX + "uuid::";
+
+    private static final Gson gson = new Gson();
+
     private final String name;
     private final UUID uuid;
-    private final Calendar expiry;
+    private final long expiry;
 
-    public CachedUUIDEntry(String name, UUID uuid, Calendar expiry) {
+    public CachedUUIDEntry(String name, UUID uuid, long expiry) {
         this.name = name;
         this.uuid = uuid;
         this.expiry = expiry;
     }
 
+    public static CachedUUIDEntry create(String name, UUID uuid) {
+        return new CachedUUIDEntry(name, uuid, System.currentTimeMillis() + TTL);
+    }
+
+    public static String nameKey(String name) {
+        return NAME_PREFIX + name.toLowerCase();
+    }
+
+    public static String uuidKey(UUID uuid) {
+        return UUID_PREFIX + uuid;
+    }
+
+    public String serialize() {
+        return expiry + ";" + uuid + ";" + name;
+    }
+
+    /**
+     * @param value value of a name or uuid key
+     * @return the entry, or null if the value can't be read
+     */
+    public static CachedUUIDEntry deserialize(String value) {
+        int first = value.indexOf(';');
+        int second = first == -1 ? -1 : value.indexOf(';', first + 1);
+        if (second == -1) return null;
+        try {
+            return new CachedUUIDEntry(value.substring(second + 1), UUID.fromString(value.substring(first + 1, second)), Long.parseLong(value.substring(0, first)));
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    /**
+     * @param json value of the legacy {@code uuid-cache} hash
+     * @return the entry, or null if the value can't be read
+     */
+    public static CachedUUIDEntry fromLegacyJson(String json) {
+        try {
+            LegacyEntry legacyEntry = gson.fromJson(json, LegacyEntry.class);
+            if (legacyEntry == null || legacyEntry.uuid == null || legacyEntry.name == null || legacyEntry.expiry == null) return null;
+            return new CachedUUIDEntry(legacyEntry.name, legacyEntry.uuid, legacyEntry.expiry.getTimeInMillis());
+        } catch (JsonParseException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
     public String getName() {
         return name;
     }
@@ -32,11 +101,23 @@ public class CachedUUIDEntry {
         return uuid;
     }
 
-    public Calendar getExpiry() {
+    // epoch millis
+    public long getExpiry() {
         return expiry;
     }
 
+    public long remainingMillis() {
+        return expiry - System.currentTimeMillis();
+    }
+
     public boolean expired() {
-        return Calendar.getInstance().after(expiry);
+        return System.currentTimeMillis() > expiry;
+    }
+
+    // gson layout of the entries written before 0.13.0
+    private static class LegacyEntry {
+        String name;
+        UUID uuid;
+        Calendar expiry;
     }
 }
@@ -10,6 +10,7 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.util.uuid;
 
+import com.google.common.util.concurrent.RateLimiter;
 import com.google.gson.Gson;
 import com.google.gson.JsonObject;
 import com.squareup.okhttp.OkHttpClient;
@@ -24,6 +25,7 @@ import java.util.UUID;
 public class NameFetcher {
     private static OkHttpClient httpClient;
     private static final Gson gson = new Gson();
+    private static final RateLimiter RATE_LIMITER = RateLimiter.create(10);
 
     public static void setHttpClient(OkHttpClient httpClient) {
         NameFetcher.httpClient = httpClient;
@@ -36,6 +38,7 @@ public class NameFetcher {
     }
 
     public static String getName(UUID uuid) throws IOException {
+        RATE_LIMITER.acquire();
         String url = "https://playerdb.co/api/player/minecraft/" + uuid.toString();
         Request request = new Request.Builder()
                 .addHeader("User-Agent", "RedisBungee-ProxioDev")
@@ -0,0 +1,135 @@
+/*
+ * Copyright (c) 2013-present RedisBungee contributors
+ *
+ * All rights reserved. This program and the accompanying materials
+ * are made available under the terms of the Eclipse Public License v1.0
+ * which accompanies this distribution, and is available at
+ *
+ *  http://www.eclipse.org/legal/epl-v10.html
+ */
+
+package com.imaginarycode.minecraft.redisbungee.api.util.uuid;
+
+import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Gathers the name lookups of every thread for a short window and resolves them with one request
+ * to the Mojang profiles endpoint, which takes up to 100 names.
+ * Lookups of a name that is already pending share its future.
+ */
+final class UUIDResolver implements Runnable {
+
+    // names per request of the profiles endpoint
+    private static final int MAX_BATCH_SIZE = 100;
+    private static final long WINDOW_NANOS = TimeUnit.MILLISECONDS.toNanos(20);
+
+    private final RedisBungeePlugin<?> plugin;
+    private final UUIDTranslator translator;
+    private final Map<String, CompletableFuture<UUID>> pending = new ConcurrentHashMap<>();
+    private final LinkedBlockingQueue<String> queue = new LinkedBlockingQueue<>();
+    private final Thread thread;
+    private volatile boolean closed = false;
+
+    UUIDResolver(RedisBungeePlugin<?> plugin, UUIDTranslator translator) {
+        this.plugin = plugin;
+        this.translator = translator;
+        this.thread = new Thread(this, "RedisBungee-UUID-Resolver");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    // completes with null if mojang does not know the name
+    CompletableFuture<UUID> resolve(String name) {
+        String key = name.toLowerCase();
+        CompletableFuture<UUID> future = new CompletableFuture<>();
+        CompletableFuture<UUID> existing = pending.putIfAbsent(key, future);
+        if (existing != null) return existing;
+        if (closed) {
+            pending.remove(key, future);
+            future.completeExceptionally(new RejectedExecutionException("uuid resolver is closed"));
+            return future;
+        }
+        queue.add(key);
+        return future;
+    }
+
+    @Override
+    public void run() {
+        List<String> batch = new ArrayList<>(MAX_BATCH_SIZE);
+        while (!closed) {
+            try {
+                String first = queue.poll(500, TimeUnit.MILLISECONDS);
+                if (first == null) continue;
+                batch.add(first);
+                // gather whatever else arrives within the window
+                long deadline = System.nanoTime() + WINDOW_NANOS;
+                while (batch.size() < MAX_BATCH_SIZE) {
+                    queue.drainTo(batch, MAX_BATCH_SIZE - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= MAX_BATCH_SIZE || remaining <= 0 || closed) break;
+                    String next = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                resolveBatch(batch);
+            } catch (InterruptedException e) {
+                break;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void resolveBatch(List<String> names) {
+        Map<String, UUID> fetched;
+        try {
+            fetched = new UUIDFetcher(names).call();
+        } catch (Exception e) {
+            plugin.logFatal("Unable to fetch UUIDs from Mojang for " + names.size() + " names");
+            for (String name : names) {
+                CompletableFuture<UUID> future = pending.remove(name);
+                if (future != null) future.completeExceptionally(e);
+            }
+            return;
+        }
+        // mojang answers with the proper case of the name
+        Map<String, UUID> uuids = new HashMap<>();
+        fetched.forEach((name, uuid) -> uuids.put(name.toLowerCase(), uuid));
+        List<String> notFound = names.stream().filter(name -> !uuids.containsKey(name)).toList();
+        try {
+            translator.persistResolved(fetched, notFound);
+        } catch (Exception e) {
+            plugin.logFatal("Unable to persist " + names.size() + " resolved names", e);
+        }
+        for (String name : names) {
+            CompletableFuture<UUID> future = pending.remove(name);
+            if (future != null) future.complete(uuids.get(name));
+        }
+    }
+
+    void close() {
+        this.closed = true;
+        this.thread.interrupt();
+        try {
+            this.thread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (String name : pending.keySet()) {
+            CompletableFuture<UUID> future = pending.remove(name);
+            if (future != null) future.completeExceptionally(new RejectedExecutionException("uuid resolver is closed"));
+        }
+    }
+
+}
@@ -10,45 +10,242 @@
 
 package com.imaginarycode.minecraft.redisbungee.api.util.uuid;
 
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Expiry;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.base.Charsets;
-import com.google.common.collect.ImmutableMap;
-import com.google.gson.Gson;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisPipelineTask;
 import com.imaginarycode.minecraft.redisbungee.api.tasks.RedisTask;
 import org.checkerframework.checker.nullness.qual.NonNull;
+import redis.clients.jedis.ClusterPipeline;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.PipelineBase;
+import redis.clients.jedis.Response;
 import redis.clients.jedis.UnifiedJedis;
 import redis.clients.jedis.exceptions.JedisException;
+import redis.clients.jedis.params.SetParams;
 
-import java.util.Calendar;
-import java.util.Collections;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Pattern;
 
 public final class UUIDTranslator {
     private static final Pattern UUID_PATTERN = Pattern.compile("[a-fA-F0-9]{8}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{4}-[a-fA-F0-9]{12}");
     private static final Pattern MOJANGIAN_UUID_PATTERN = Pattern.compile("[a-fA-F0-9]{32}");
     private final RedisBungeePlugin<?> plugin;
-    private final Map<String, CachedUUIDEntry> nameToUuidMap = new ConcurrentHashMap<>(128, 0.5f, 4);
-    private final Map<UUID, CachedUUIDEntry> uuidToNameMap = new ConcurrentHashMap<>(128, 0.5f, 4);
-    private static final Gson gson = new Gson();
+    // lowercase names and uuids share one cache, so both indexes are bounded and expire together
+    private final Cache<Object, CachedUUIDEntry> cache;
+    private static final long LEGACY_CHECK_INTERVAL = TimeUnit.MINUTES.toMillis(10);
+    // whether the pre 0.13.0 hash still exists, misses fall back to it until it is migrated
+    private volatile boolean legacyHashPresent = true;
+    private volatile long legacyHashCheckedAt = 0;
+    // returned by the redis reads when another proxy already found out that the player does not exist
+    private static final CachedUUIDEntry NOT_FOUND = new CachedUUIDEntry(null, null, 0);
+    // names and uuids mojang or playerdb don't know, kept for a short time so typos and bots don't hit the apis every time
+    private final Cache<Object, Boolean> notFoundCache;
+    private final long notFoundTtl;
+    // running playerdb lookups, concurrent lookups of the same uuid wait for the first one, names are batched by the resolver
+    private final Map<Object, CompletableFuture<Object>> lookups = new ConcurrentHashMap<>();
+    private static final long RESOLVE_TIMEOUT = 10;
+    private final UUIDResolver resolver;
 
     public UUIDTranslator(RedisBungeePlugin<?> plugin) {
         this.plugin = plugin;
+        this.notFoundTtl = TimeUnit.SECONDS.toMillis(plugin.configuration().uuidCacheConfiguration().negativeTtl());
+        this.notFoundCache = Caffeine.newBuilder()
+                .maximumSize(plugin.configuration().uuidCacheConfiguration().localMaxSize())
+                .expireAfterWrite(this.notFoundTtl, TimeUnit.MILLISECONDS)
+                .build();
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(plugin.configuration().uuidCacheConfiguration().localMaxSize())
+                .expireAfter(new Expiry<Object, CachedUUIDEntry>() {
+                    @Override
+                    public long expireAfterCreate(Object key, CachedUUIDEntry entry, long currentTime) {
+                        return TimeUnit.MILLISECONDS.toNanos(Math.max(0, entry.remainingMillis()));
+                    }
+
+                    @Override
+                    public long expireAfterUpdate(Object key, CachedUUIDEntry entry, long currentTime, long currentDuration) {
+                        return expireAfterCreate(key, entry, currentTime);
+                    }
+
+                    @Override
+                    public long expireAfterRead(Object key, CachedUUIDEntry entry, long currentTime, long currentDuration) {
+                        return currentDuration;
+                    }
+                })
+                .recordStats()
+                .build();
+        this.resolver = new UUIDResolver(plugin, this);
+    }
+
+    private CachedUUIDEntry addToMaps(String name, UUID uuid) {
+        // Create the entry and populate the local maps, it's cached for three days.
+        CachedUUIDEntry entry = CachedUUIDEntry.create(name, uuid);
+        addToMaps(entry);
+        return entry;
+    }
+
+    private void addToMaps(CachedUUIDEntry entry) {
+        cache.put(entry.getName().toLowerCase(), entry);
+        cache.put(entry.getUuid(), entry);
+        notFoundCache.invalidate(entry.getName().toLowerCase());
+        notFoundCache.invalidate(entry.getUuid());
+    }
+
+    private void markNotFound(UnifiedJedis unifiedJedis, Object localKey, String key) {
+        notFoundCache.put(localKey, Boolean.TRUE);
+        if (notFoundTtl > 0) {
+            // NX so a player that joined in the meantime is not hidden
+            unifiedJedis.set(key, CachedUUIDEntry.NOT_FOUND_VALUE, SetParams.setParams().nx().px(notFoundTtl));
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> T coalesce(Object key, Callable<T> lookup) throws Exception {
+        CompletableFuture<Object> future = new CompletableFuture<>();
+        CompletableFuture<Object> running = lookups.putIfAbsent(key, future);
+        if (running != null) {
+            try {
+                return (T) running.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        try {
+            T result = lookup.call();
+            future.complete(result);
+            return result;
+        } catch (Exception e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            lookups.remove(key, future);
+        }
+    }
+
+    private UUID awaitResolved(CompletableFuture<UUID> future, String player) {
+        try {
+            return future.get(RESOLVE_TIMEOUT, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            plugin.logFatal("Unable to fetch UUID from Mojang for " + player);
+        }
+        return null;
+    }
+
+    // called by the resolver with the outcome of a bulk request, written with one pipeline
+    void persistResolved(Map<String, UUID> found, Collection<String> notFound) {
+        List<CachedUUIDEntry> entries = new ArrayList<>(found.size());
+        found.forEach((name, uuid) -> entries.add(addToMaps(name, uuid)));
+        for (String name : notFound) {
+            notFoundCache.put(name.toLowerCase(), Boolean.TRUE);
+        }
+        new RedisPipelineTask<Void>(plugin) {
+            @Override
+            public Void doPooledPipeline(Pipeline pipeline) {
+                writeResolved(pipeline, entries, notFound);
+                return null;
+            }
+
+            @Override
+            public Void clusterPipeline(ClusterPipeline pipeline) {
+                writeResolved(pipeline, entries, notFound);
+                return null;
+            }
+        }.execute();
+    }
+
+    private void writeResolved(PipelineBase pipeline, List<CachedUUIDEntry> entries, Collection<String> notFound) {
+        SetParams params = SetParams.setParams().px(CachedUUIDEntry.TTL);
+        for (CachedUUIDEntry entry : entries) {
+            String value = entry.serialize();
+            pipeline.set(CachedUUIDEntry.nameKey(entry.getName()), value, params);
+            pipeline.set(CachedUUIDEntry.uuidKey(entry.getUuid()), value, params);
+        }
+        if (notFoundTtl > 0) {
+            // NX so a player that joined in the meantime is not hidden
+            SetParams notFoundParams = SetParams.setParams().nx().px(notFoundTtl);
+            for (String name : notFound) {
+                pipeline.set(CachedUUIDEntry.nameKey(name), CachedUUIDEntry.NOT_FOUND_VALUE, notFoundParams);
+            }
+        }
+        pipeline.sync();
+    }
+
+    private String fetchName(UnifiedJedis unifiedJedis, UUID player) throws Exception {
+        String name = NameFetcher.getName(player);
+        if (name != null) {
+            persistInfo(name, player, unifiedJedis);
+        } else {
+            markNotFound(unifiedJedis, player, CachedUUIDEntry.uuidKey(player));
+        }
+        return name;
+    }
+
+    private boolean legacyLookups(UnifiedJedis unifiedJedis) {
+        if (legacyHashPresent && System.currentTimeMillis() - legacyHashCheckedAt > LEGACY_CHECK_INTERVAL) {
+            legacyHashPresent = unifiedJedis.exists(CachedUUIDEntry.LEGACY_HASH);
+            legacyHashCheckedAt = System.currentTimeMillis();
+        }
+        return legacyHashPresent;
+    }
+
+    // reads an entry from its own key, or from the legacy hash when it was not migrated yet
+    private CachedUUIDEntry readEntry(UnifiedJedis unifiedJedis, String key, String legacyField) {
+        String stored = unifiedJedis.get(key);
+        if (stored != null) return deserialize(stored);
+        if (!legacyLookups(unifiedJedis)) return null;
+        return fromLegacy(unifiedJedis.hget(CachedUUIDEntry.LEGACY_HASH, legacyField));
     }
 
-    private void addToMaps(String name, UUID uuid) {
-        // This is why I like LocalDate...
+    // redis sends the invalidations of tracked keys when the primary changes them, a replica may still answer with
+    // the old value afterwards which would then stay cached, so lookups only use replicas without client side caching
+    private boolean readFromReplica() {
+        return !plugin.configuration().clientSideCaching();
+    }
 
-        // Cache the entry for three days.
-        Calendar calendar = Calendar.getInstance();
-        calendar.add(Calendar.DAY_OF_MONTH, 3);
+    // lookups only read, so they can be answered by a read replica
+    private CachedUUIDEntry readStoredEntry(String key, String legacyField) {
+        return new RedisTask<CachedUUIDEntry>(plugin) {
+            @Override
+            protected boolean readOnly() {
+                return readFromReplica();
+            }
 
-        // Create the entry and populate the local maps
-        CachedUUIDEntry entry = new CachedUUIDEntry(name, uuid, calendar);
-        nameToUuidMap.put(name.toLowerCase(), entry);
-        uuidToNameMap.put(uuid, entry);
+            @Override
+            public CachedUUIDEntry unifiedJedisTask(UnifiedJedis unifiedJedis) {
+                return readEntry(unifiedJedis, key, legacyField);
+            }
+        }.execute();
+    }
+
+    // a value that can't be read is a miss, the key is written again once the player is resolved
+    private CachedUUIDEntry deserialize(String value) {
+        if (value.equals(CachedUUIDEntry.NOT_FOUND_VALUE)) return NOT_FOUND;
+        CachedUUIDEntry entry = CachedUUIDEntry.deserialize(value);
+        if (entry == null) plugin.logWarn("Ignoring unreadable uuid cache value '{}'", value);
+        return entry;
+    }
+
+    // expired entries are left for UUIDCleanupTask, lookups may run on a read replica
+    private static CachedUUIDEntry fromLegacy(String json) {
+        if (json == null) return null;
+        CachedUUIDEntry entry = CachedUUIDEntry.fromLegacyJson(json);
+        if (entry == null || entry.expired()) return null;
+        return entry;
     }
 
     public UUID getTranslatedUuid(@NonNull String player, boolean expensiveLookups) {
@@ -57,13 +254,13 @@ public final class UUIDTranslator {
         if (plugin.getPlayer(player) != null)
             return plugin.getPlayerUUID(player);
 
-        // Check if it exists in the map
-        CachedUUIDEntry cachedUUIDEntry = nameToUuidMap.get(player.toLowerCase());
+        // Check if it exists in the cache, expired entries are never returned
+        CachedUUIDEntry cachedUUIDEntry = cache.getIfPresent(player.toLowerCase());
         if (cachedUUIDEntry != null) {
-            if (!cachedUUIDEntry.expired())
-                return cachedUUIDEntry.getUuid();
-            else
-                nameToUuidMap.remove(player);
+            return cachedUUIDEntry.getUuid();
+        }
+        if (notFoundCache.getIfPresent(player.toLowerCase()) != null) {
+            return null;
         }
 
         // Check if we can exit early
@@ -81,54 +278,28 @@ public final class UUIDTranslator {
         if (!plugin.isOnlineMode()) {
             return UUID.nameUUIDFromBytes(("OfflinePlayer:" + player).getBytes(Charsets.UTF_8));
         }
-        RedisTask<UUID> redisTask = new RedisTask<UUID>(plugin) {
-            @Override
-            public UUID unifiedJedisTask(UnifiedJedis unifiedJedis) {
-                String stored = unifiedJedis.hget("uuid-cache", player.toLowerCase());
-                if (stored != null) {
-                    // Found an entry value. Deserialize it.
-                    CachedUUIDEntry entry = gson.fromJson(stored, CachedUUIDEntry.class);
-
-                    // Check for expiry:
-                    if (entry.expired()) {
-                        unifiedJedis.hdel("uuid-cache", player.toLowerCase());
-                        // Doesn't hurt to also remove the UUID entry as well.
-                        unifiedJedis.hdel("uuid-cache", entry.getUuid().toString());
-                    } else {
-                        nameToUuidMap.put(player.toLowerCase(), entry);
-                        uuidToNameMap.put(entry.getUuid(), entry);
-                        return entry.getUuid();
-                    }
-                }
-
-                // That didn't work. Let's ask Mojang.
-                if (!expensiveLookups || !plugin.isOnlineMode())
-                    return null;
-
-                Map<String, UUID> uuidMap1;
-                try {
-                    uuidMap1 = new UUIDFetcher(Collections.singletonList(player)).call();
-                } catch (Exception e) {
-                    plugin.logFatal("Unable to fetch UUID from Mojang for " + player);
-                    return null;
-                }
-                for (Map.Entry<String, UUID> entry : uuidMap1.entrySet()) {
-                    if (entry.getKey().equalsIgnoreCase(player)) {
-                        persistInfo(entry.getKey(), entry.getValue(), unifiedJedis);
-                        return entry.getValue();
-                    }
-                }
-                return null;
-            }
-        };
-        // Let's try Redis.
+        // Let's try Redis, it expires the entries itself.
+        CachedUUIDEntry entry;
         try {
-            return redisTask.execute();
+            entry = readStoredEntry(CachedUUIDEntry.nameKey(player), player.toLowerCase());
         } catch (JedisException e) {
             plugin.logFatal("Unable to fetch UUID for " + player);
+            return null; // Nope, game over!
+        }
+        if (entry == NOT_FOUND) {
+            notFoundCache.put(player.toLowerCase(), Boolean.TRUE);
+            return null;
+        }
+        if (entry != null) {
+            addToMaps(entry);
+            return entry.getUuid();
         }
 
-        return null; // Nope, game over!
+        // That didn't work. Let's ask Mojang.
+        if (!expensiveLookups || !plugin.isOnlineMode())
+            return null;
+
+        return awaitResolved(resolver.resolve(player), player);
     }
 
     public String getNameFromUuid(@NonNull UUID player, boolean expensiveLookups) {
@@ -137,59 +308,48 @@ public final class UUIDTranslator {
         if (plugin.getPlayer(player) != null)
             return plugin.getPlayerName(player);
 
-        // Check if it exists in the map
-        CachedUUIDEntry cachedUUIDEntry = uuidToNameMap.get(player);
+        // Check if it exists in the cache, expired entries are never returned
+        CachedUUIDEntry cachedUUIDEntry = cache.getIfPresent(player);
         if (cachedUUIDEntry != null) {
-            if (!cachedUUIDEntry.expired())
-                return cachedUUIDEntry.getName();
-            else
-                uuidToNameMap.remove(player);
+            return cachedUUIDEntry.getName();
+        }
+        if (notFoundCache.getIfPresent(player) != null) {
+            return null;
+        }
+
+        // Okay, it wasn't locally cached. Let's try Redis, it expires the entries itself.
+        CachedUUIDEntry entry;
+        try {
+            entry = readStoredEntry(CachedUUIDEntry.uuidKey(player), player.toString());
+        } catch (JedisException e) {
+            plugin.logFatal("Unable to fetch name for " + player);
+            return null;
+        }
+        if (entry == NOT_FOUND) {
+            notFoundCache.put(player, Boolean.TRUE);
+            return null;
+        }
+        if (entry != null) {
+            addToMaps(entry);
+            return entry.getName();
         }
 
+        if (!expensiveLookups || !plugin.isOnlineMode())
+            return null;
+
         RedisTask<String> redisTask = new RedisTask<String>(plugin) {
             @Override
             public String unifiedJedisTask(UnifiedJedis unifiedJedis) {
-                String stored = unifiedJedis.hget("uuid-cache", player.toString());
-                if (stored != null) {
-                    // Found an entry value. Deserialize it.
-                    CachedUUIDEntry entry = gson.fromJson(stored, CachedUUIDEntry.class);
-
-                    // Check for expiry:
-                    if (entry.expired()) {
-                        unifiedJedis.hdel("uuid-cache", player.toString());
-                        // Doesn't hurt to also remove the named entry as well.
-                        // TODO: Since UUIDs are fixed, we could look up the name and see if the UUID matches.
-                        unifiedJedis.hdel("uuid-cache", entry.getName());
-                    } else {
-                        nameToUuidMap.put(entry.getName().toLowerCase(), entry);
-                        uuidToNameMap.put(player, entry);
-                        return entry.getName();
-                    }
-                }
-
-                if (!expensiveLookups || !plugin.isOnlineMode())
-                    return null;
-
                 // That didn't work. Let's ask PlayerDB.
-                String name;
                 try {
-                    name = NameFetcher.getName(player);
+                    return coalesce(player, () -> fetchName(unifiedJedis, player));
                 } catch (Exception e) {
                     plugin.logFatal("Unable to fetch name from PlayerDB for " + player);
                     return null;
                 }
-
-                if (name != null) {
-                    persistInfo(name, player, unifiedJedis);
-                    return name;
-                }
-
-                return null;
             }
         };
 
-
-        // Okay, it wasn't locally cached. Let's try Redis.
         try {
             return redisTask.execute();
         } catch (JedisException e) {
@@ -198,10 +358,237 @@ public final class UUIDTranslator {
         }
     }
 
+    // players without a known uuid are not contained in the returned map
+    public Map<String, UUID> getTranslatedUuids(@NonNull Collection<String> players, boolean expensiveLookups) {
+        Map<String, UUID> result = new HashMap<>();
+        List<String> remaining = new ArrayList<>();
+        for (String player : players) {
+            if (plugin.getPlayer(player) != null) {
+                result.put(player, plugin.getPlayerUUID(player));
+                continue;
+            }
+            CachedUUIDEntry cachedUUIDEntry = cache.getIfPresent(player.toLowerCase());
+            if (cachedUUIDEntry != null) {
+                result.put(player, cachedUUIDEntry.getUuid());
+            } else if (notFoundCache.getIfPresent(player.toLowerCase()) != null) {
+                continue;
+            } else if (UUID_PATTERN.matcher(player).find()) {
+                result.put(player, UUID.fromString(player));
+            } else if (MOJANGIAN_UUID_PATTERN.matcher(player).find()) {
+                result.put(player, UUIDFetcher.getUUID(player));
+            } else if (!plugin.isOnlineMode()) {
+                result.put(player, UUID.nameUUIDFromBytes(("OfflinePlayer:" + player).getBytes(Charsets.UTF_8)));
+            } else {
+                remaining.add(player);
+            }
+        }
+        if (remaining.isEmpty()) return result;
+
+        RedisTask<List<String>> redisTask = new RedisTask<List<String>>(plugin) {
+            @Override
+            protected boolean readOnly() {
+                return readFromReplica();
+            }
+
+            @Override
+            public List<String> unifiedJedisTask(UnifiedJedis unifiedJedis) {
+                List<CachedUUIDEntry> stored = readEntries(unifiedJedis, remaining.stream().map(CachedUUIDEntry::nameKey).toList(), remaining.stream().map(String::toLowerCase).toList());
+                List<String> notFound = new ArrayList<>();
+                for (int i = 0; i < remaining.size(); i++) {
+                    String player = remaining.get(i);
+                    CachedUUIDEntry entry = stored.get(i);
+                    if (entry == NOT_FOUND) {
+                        notFoundCache.put(player.toLowerCase(), Boolean.TRUE);
+                    } else if (entry == null) {
+                        notFound.add(player);
+                    } else {
+                        addToMaps(entry);
+                        result.put(player, entry.getUuid());
+                    }
+                }
+                return notFound;
+            }
+        };
+        List<String> notFound;
+        try {
+            notFound = redisTask.execute();
+        } catch (JedisException e) {
+            plugin.logFatal("Unable to fetch UUIDs for " + remaining.size() + " names");
+            return result;
+        }
+        if (!expensiveLookups) return result;
+        // the resolver sends them in requests of 100 names
+        Map<String, CompletableFuture<UUID>> resolving = new HashMap<>();
+        for (String player : notFound) {
+            resolving.put(player, resolver.resolve(player));
+        }
+        resolving.forEach((player, future) -> {
+            UUID uuid = awaitResolved(future, player);
+            if (uuid != null) result.put(player, uuid);
+        });
+        return result;
+    }
+
+    // players without a known name are not contained in the returned map
+    public Map<UUID, String> getNamesFromUuids(@NonNull Collection<UUID> players, boolean expensiveLookups) {
+        Map<UUID, String> result = new HashMap<>();
+        List<UUID> remaining = new ArrayList<>();
+        for (UUID player : players) {
+            if (plugin.getPlayer(player) != null) {
+                result.put(player, plugin.getPlayerName(player));
+                continue;
+            }
+            CachedUUIDEntry cachedUUIDEntry = cache.getIfPresent(player);
+            if (cachedUUIDEntry != null) {
+                result.put(player, cachedUUIDEntry.getName());
+            } else if (notFoundCache.getIfPresent(player) == null) {
+                remaining.add(player);
+            }
+        }
+        if (remaining.isEmpty()) return result;
+
+        RedisTask<List<UUID>> redisTask = new RedisTask<List<UUID>>(plugin) {
+            @Override
+            protected boolean readOnly() {
+                return readFromReplica();
+            }
+
+            @Override
+            public List<UUID> unifiedJedisTask(UnifiedJedis unifiedJedis) {
+                List<CachedUUIDEntry> stored = readEntries(unifiedJedis, remaining.stream().map(CachedUUIDEntry::uuidKey).toList(), remaining.stream().map(UUID::toString).toList());
+                List<UUID> notFound = new ArrayList<>();
+                for (int i = 0; i < remaining.size(); i++) {
+                    UUID player = remaining.get(i);
+                    CachedUUIDEntry entry = stored.get(i);
+                    if (entry == NOT_FOUND) {
+                        notFoundCache.put(player, Boolean.TRUE);
+                    } else if (entry == null) {
+                        notFound.add(player);
+                    } else {
+                        addToMaps(entry);
+                        result.put(player, entry.getName());
+                    }
+                }
+                return notFound;
+            }
+        };
+        List<UUID> notFound;
+        try {
+            notFound = redisTask.execute();
+        } catch (JedisException e) {
+            plugin.logFatal("Unable to fetch names for " + remaining.size() + " uuids");
+            return result;
+        }
+        if (!expensiveLookups || !plugin.isOnlineMode()) return result;
+        // PlayerDB has no bulk endpoint
+        for (UUID player : notFound) {
+            try {
+                String name = new RedisTask<String>(plugin) {
+                    @Override
+                    public String unifiedJedisTask(UnifiedJedis unifiedJedis) {
+                        try {
+                            return coalesce(player, () -> fetchName(unifiedJedis, player));
+                        } catch (Exception e) {
+                            plugin.logFatal("Unable to fetch name from PlayerDB for " + player);
+                            return null;
+                        }
+                    }
+                }.execute();
+                if (name != null) result.put(player, name);
+            } catch (JedisException e) {
+                plugin.logFatal("Unable to fetch name for " + player);
+            }
+        }
+        return result;
+    }
+
+    // the keys live in different cluster slots so they are read with a pipeline rather than MGET
+    private List<CachedUUIDEntry> readEntries(UnifiedJedis unifiedJedis, List<String> keys, List<String> legacyFields) {
+        List<String> stored = new RedisPipelineTask<List<String>>(plugin) {
+            @Override
+            public List<String> doPooledPipeline(Pipeline pipeline) {
+                return getAll(pipeline, keys);
+            }
+
+            @Override
+            public List<String> clusterPipeline(ClusterPipeline pipeline) {
+                return getAll(pipeline, keys);
+            }
+        }.unifiedJedisTask(unifiedJedis);
+        List<CachedUUIDEntry> entries = new ArrayList<>(keys.size());
+        List<Integer> missing = new ArrayList<>();
+        for (int i = 0; i < keys.size(); i++) {
+            String value = stored.get(i);
+            entries.add(value == null ? null : deserialize(value));
+            if (value == null) missing.add(i);
+        }
+        if (missing.isEmpty() || !legacyLookups(unifiedJedis)) return entries;
+        List<String> legacy = unifiedJedis.hmget(CachedUUIDEntry.LEGACY_HASH, missing.stream().map(legacyFields::get).toArray(String[]::new));
+        for (int i = 0; i < missing.size(); i++) {
+            int index = missing.get(i);
+            entries.set(index, fromLegacy(legacy.get(i)));
+        }
+        return entries;
+    }
+
+    private static List<String> getAll(PipelineBase pipeline, List<String> keys) {
+        List<Response<String>> responses = new ArrayList<>(keys.size());
+        for (String key : keys) {
+            responses.add(pipeline.get(key));
+        }
+        pipeline.sync();
+        return responses.stream().map(Response::get).toList();
+    }
+
+    public void close() {
+        this.resolver.close();
+    }
+
+    public CacheStats cacheStats() {
+        return cache.stats();
+    }
+
+    // names and uuids are counted separately, a player usually takes two entries
+    public long cacheSize() {
+        return cache.estimatedSize();
+    }
+
+    /**
+     * Drops what is cached locally for a name or uuid key that changed in redis.
+     *
+     * @param key a key starting with {@link CachedUUIDEntry#KEY_PREFIX}
+     */
+    public void invalidate(String key) {
+        if (key.startsWith(CachedUUIDEntry.NAME_PREFIX)) {
+            String name = key.substring(CachedUUIDEntry.NAME_PREFIX.length());
+            cache.invalidate(name);
+            notFoundCache.invalidate(name);
+        } else if (key.startsWith(CachedUUIDEntry.UUID_PREFIX)) {
+            try {
+                UUID uuid = UUID.fromString(key.substring(CachedUUIDEntry.UUID_PREFIX.length()));
+                cache.invalidate(uuid);
+                notFoundCache.invalidate(uuid);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+        notFoundCache.invalidateAll();
+    }
+
+    // caches locally and returns the entry, for callers writing it to redis themselves
+    public CachedUUIDEntry cacheEntry(String name, UUID uuid) {
+        return addToMaps(name, uuid);
+    }
+
     public void persistInfo(String name, UUID uuid, UnifiedJedis unifiedJedis) {
-        addToMaps(name, uuid);
-        String json = gson.toJson(uuidToNameMap.get(uuid));
-        unifiedJedis.hset("uuid-cache", ImmutableMap.of(name.toLowerCase(), json, uuid.toString(), json));
+        CachedUUIDEntry entry = cacheEntry(name, uuid);
+        String value = entry.serialize();
+        SetParams params = SetParams.setParams().px(CachedUUIDEntry.TTL);
+        unifiedJedis.set(CachedUUIDEntry.nameKey(name), value, params);
+        unifiedJedis.set(CachedUUIDEntry.uuidKey(uuid), value, params);
     }
 
 
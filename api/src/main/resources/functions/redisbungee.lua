@@ -0,0 +1,61 @@
+#!lua name=redisbungee
+
+-- 16 byte form of the uuid, online players sets hold it when binary-player-sets is enabled
+local function uuid_bytes(uuid)
+    local hex = string.gsub(uuid, '-', '')
+    local bytes = {}
+    for i = 1, 31, 2 do
+        bytes[#bytes + 1] = string.char(tonumber(string.sub(hex, i, i + 1), 16))
+    end
+    return table.concat(bytes)
+end
+
+-- keys: player data hash, uuid cache name key, uuid cache uuid key, network stream, proxy online players set
+-- args: online players set member (uuid string or 16 byte form), proxy, ip, uuid cache entry, uuid cache ttl millis,
+--       stream max length, stream entry field/value pairs...
+local function player_join(keys, args)
+    redis.call('HSET', keys[1], 'last-online', '0', 'proxy', args[2], 'ip', args[3])
+    redis.call('SET', keys[2], args[4], 'PX', args[5])
+    redis.call('SET', keys[3], args[4], 'PX', args[5])
+    redis.call('SADD', keys[5], args[1])
+    redis.call('XADD', keys[4], 'MAXLEN', args[6], '*', unpack(args, 7))
+    return 1
+end
+
+-- keys: player data hash, network stream, proxy online players set
+-- args: uuid, last online, stream max length, stream entry field/value pairs...
+local function player_quit(keys, args)
+    redis.call('HSET', keys[1], 'last-online', args[2])
+    redis.call('HDEL', keys[1], 'server', 'proxy', 'ip')
+    -- proxies older than 0.13.0 stored the uuid string
+    redis.call('SREM', keys[3], uuid_bytes(args[1]), args[1])
+    redis.call('XADD', keys[2], 'MAXLEN', args[3], '*', unpack(args, 4))
+    return 1
+end
+
+-- keys: player data hash, online players sets of the known proxies
+-- args: uuid, ids of the known proxies in the order of their sets
+-- returns: last online, proxy and whether the online players set of that proxy has the player,
+-- -1 when the proxy is not one of the known proxies
+local function login_check(keys, args)
+    local data = redis.call('HMGET', keys[1], 'last-online', 'proxy')
+    local member = 0
+    if data[2] then
+        member = -1
+        for i = 2, #args do
+            if args[i] == data[2] then
+                member = 0
+                local members = redis.call('SMISMEMBER', keys[i], uuid_bytes(args[1]), args[1])
+                if members[1] == 1 or members[2] == 1 then
+                    member = 1
+                end
+                break
+            end
+        end
+    end
+    return { data[1], data[2], member }
+end
+
+redis.register_function('redisbungee_player_join', player_join)
+redis.register_function('redisbungee_player_quit', player_quit)
+redis.register_function { function_name = 'redisbungee_login_check', callback = login_check, flags = { 'no-writes' } }
@@ -13,11 +13,15 @@ package com.imaginarycode.minecraft.redisbungee.commands;
 import co.aikar.commands.CommandIssuer;
 import co.aikar.commands.RegisteredCommand;
 import co.aikar.commands.annotation.*;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
 import com.google.common.primitives.Ints;
 import com.imaginarycode.minecraft.redisbungee.Constants;
+import com.imaginarycode.minecraft.redisbungee.api.PlayerStateWriter;
+import com.imaginarycode.minecraft.redisbungee.api.tasks.KeyMigrationTask;
+import com.imaginarycode.minecraft.redisbungee.api.tasks.UUIDCleanupTask;
 import com.imaginarycode.minecraft.redisbungee.api.RedisBungeePlugin;
+import com.imaginarycode.minecraft.redisbungee.api.summoners.PoolStats;
 import com.imaginarycode.minecraft.redisbungee.commands.utils.AdventureBaseCommand;
-import com.imaginarycode.minecraft.redisbungee.commands.utils.StopperUUIDCleanupTask;
 import net.kyori.adventure.text.Component;
 import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.event.ClickEvent;
@@ -89,20 +93,99 @@ public class CommandRedisBungee extends AdventureBaseCommand {
         sendMessage(issuer, message.build());
     }
     @Subcommand("clean")
-    @Description("cleans up the uuid cache<color:red> <bold>WARNING...</bold> <color:white>command above could cause performance issues")
+    @Description("migrates the old uuid cache to the per key layout and drops expired entries<color:red> <bold>WARNING...</bold> <color:white>command above could cause performance issues")
     @Private
     public void cleanUp(CommandIssuer issuer) {
-        if (StopperUUIDCleanupTask.isRunning) {
+        if (UUIDCleanupTask.isRunning(plugin.getSummoner().obtainResource())) {
             sendMessage(issuer,
                     Component.text("cleanup is currently running!").color(NamedTextColor.RED));
             return;
         }
         sendMessage(issuer,
                 Component.text("cleanup is Starting, you should see the output status in the proxy console").color(NamedTextColor.GOLD));
-        plugin.executeAsync(new StopperUUIDCleanupTask(plugin));
+        plugin.executeAsync(new UUIDCleanupTask(plugin));
     }
 
+    @Subcommand("clean cancel")
+    @Description("stops the running uuid cache migration, the next run continues where it stopped")
+    @Private
+    public void cancelCleanUp(CommandIssuer issuer) {
+        if (!UUIDCleanupTask.isRunning(plugin.getSummoner().obtainResource())) {
+            sendMessage(issuer,
+                    Component.text("cleanup is not running!").color(NamedTextColor.RED));
+            return;
+        }
+        UUIDCleanupTask.cancel(plugin.getSummoner().obtainResource());
+        sendMessage(issuer,
+                Component.text("cleanup will stop after its current chunk").color(NamedTextColor.GOLD));
+    }
 
+    @Subcommand("migratekeys")
+    @Description("moves player data written under the other key schema to the configured one<color:red> <bold>WARNING...</bold> <color:white>run it once every proxy uses the configured key schema")
+    @Private
+    public void migrateKeys(CommandIssuer issuer) {
+        if (KeyMigrationTask.isRunning(plugin.getSummoner().obtainResource())) {
+            sendMessage(issuer,
+                    Component.text("key migration is currently running!").color(NamedTextColor.RED));
+            return;
+        }
+        sendMessage(issuer,
+                Component.text("key migration is Starting, you should see the output status in the proxy console").color(NamedTextColor.GOLD));
+        plugin.executeAsync(new KeyMigrationTask(plugin));
+    }
+
+    @Subcommand("migratekeys cancel")
+    @Description("stops the running key migration")
+    @Private
+    public void cancelMigrateKeys(CommandIssuer issuer) {
+        if (!KeyMigrationTask.isRunning(plugin.getSummoner().obtainResource())) {
+            sendMessage(issuer,
+                    Component.text("key migration is not running!").color(NamedTextColor.RED));
+            return;
+        }
+        KeyMigrationTask.cancel(plugin.getSummoner().obtainResource());
+        sendMessage(issuer,
+                Component.text("key migration will stop after its current chunk").color(NamedTextColor.GOLD));
+    }
+
+    @Subcommand("stats")
+    @Description("shows redis connection, write batching and uuid cache statistics of this proxy")
+    public void stats(CommandIssuer issuer) {
+        final String message = """
+        <color:gold>========================================
+        <color:aqua>Player state flushes: <color:green><flushes>
+        <color:aqua>Player state writes / failed: <color:green><writes> / <failed-writes>
+        <color:aqua>Average / largest batch: <color:green><average-batch> / <largest-batch>
+        <color:aqua>Average / last flush: <color:green><average-flush>ms / <last-flush>ms
+        <color:aqua>UUID cache entries: <color:green><uuid-cache-size>
+        <color:aqua>UUID cache hits / misses: <color:green><uuid-cache-hits> / <uuid-cache-misses> (<uuid-cache-hit-rate>%)
+        <color:aqua>UUID cache evictions: <color:green><uuid-cache-evictions>
+        <color:aqua>Redis connections active / idle / waiting: <color:green><pool-active> / <pool-idle> / <pool-waiters>
+        <color:aqua>Redis connection wait mean / max: <color:green><pool-mean-wait>ms / <pool-max-wait>ms
+        <color:gold>========================================""";
+        PlayerStateWriter.Stats stats = plugin.playerDataManager().stateWriterStats();
+        CacheStats uuidCacheStats = plugin.getUuidTranslator().cacheStats();
+        PoolStats poolStats = plugin.getSummoner().poolStats();
+        sendMessage(issuer, MiniMessage.miniMessage().deserialize(message,
+                Placeholder.component("flushes", Component.text(stats.flushes())),
+                Placeholder.component("writes", Component.text(stats.writes())),
+                Placeholder.component("failed-writes", Component.text(stats.failedWrites())),
+                Placeholder.component("average-batch", Component.text(String.format("%.1f", stats.averageBatchSize()))),
+                Placeholder.component("largest-batch", Component.text(stats.largestBatch())),
+                Placeholder.component("average-flush", Component.text(String.format("%.2f", stats.averageFlushMillis()))),
+                Placeholder.component("last-flush", Component.text(String.format("%.2f", stats.lastFlushMillis()))),
+                Placeholder.component("uuid-cache-size", Component.text(plugin.getUuidTranslator().cacheSize())),
+                Placeholder.component("uuid-cache-hits", Component.text(uuidCacheStats.hitCount())),
+                Placeholder.component("uuid-cache-misses", Component.text(uuidCacheStats.missCount())),
+                Placeholder.component("uuid-cache-hit-rate", Component.text(String.format("%.1f", uuidCacheStats.hitRate() * 100))),
+                Placeholder.component("uuid-cache-evictions", Component.text(uuidCacheStats.evictionCount())),
+                Placeholder.component("pool-active", Component.text(poolStats.active())),
+                Placeholder.component("pool-idle", Component.text(poolStats.idle())),
+                Placeholder.component("pool-waiters", Component.text(poolStats.waiters())),
+                Placeholder.component("pool-mean-wait", Component.text(poolStats.meanWaitMillis())),
+                Placeholder.component("pool-max-wait", Component.text(poolStats.maxWaitMillis()))
+        ));
+    }
 
     private List<Map.Entry<String, Integer>> subListProxies(List<Map.Entry<String, Integer>> data, final int currentPage, final int pageSize) {
         return data.subList(((currentPage * pageSize) - pageSize), Ints.constrainToRange(currentPage * pageSize, 0, data.size()));
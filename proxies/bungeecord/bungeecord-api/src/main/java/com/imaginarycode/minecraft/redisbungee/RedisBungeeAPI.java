@@ -114,30 +114,28 @@ public class RedisBungeeAPI extends AbstractRedisBungeeAPI {
     }
 
     /**
-     * Warning: this is Legacy API to maintain backward compatibility with RedisBungee Pre fork 0.5
-     * <p>
      * Register (a) PubSub channel(s), so that you may handle PubSubMessageEvent for it.
+     * <p>
+     * Only required when stream sharding is enabled, messages of channels that are not registered
+     * on this proxy are then not delivered.
      *
      * @param channels the channels to register
      * @since 0.3
-     * @deprecated No longer required
      */
-    @Deprecated
+    @Override
     public final void registerPubSubChannels(String... channels) {
+        super.registerPubSubChannels(channels);
     }
 
     /**
-     * Warning: this is Legacy API to maintain backward compatibility with RedisBungee Pre fork 0.5
-     * <p>
-     *  Unregister (a) PubSub channel(s).
+     * Unregister (a) PubSub channel(s).
      *
      * @param channels the channels to unregister
      * @since 0.3
-     * @deprecated No longer required
      */
-
-    @Deprecated
+    @Override
     public final void unregisterPubSubChannels(String... channels) {
+        super.unregisterPubSubChannels(channels);
     }
 
 
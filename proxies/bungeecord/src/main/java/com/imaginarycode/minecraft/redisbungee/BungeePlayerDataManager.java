@@ -26,7 +26,6 @@ import net.md_5.bungee.api.plugin.Listener;
 import net.md_5.bungee.api.plugin.Plugin;
 import net.md_5.bungee.event.EventHandler;
 
-import java.util.concurrent.TimeUnit;
 
 
 public class BungeePlayerDataManager extends PlayerDataManager<ProxiedPlayer, PostLoginEvent, PlayerDisconnectEvent, PubSubMessageEvent, PlayerChangedServerNetworkEvent, PlayerLeftNetworkEvent, ServerConnectedEvent, PlayerJoinedNetworkEvent> implements Listener {
@@ -70,27 +69,25 @@ public class BungeePlayerDataManager extends PlayerDataManager<ProxiedPlayer, Po
     @EventHandler
     public void onLoginEvent(LoginEvent event) {
         event.registerIntent((Plugin) plugin);
-        // check if online
-        if (getLastOnline(event.getConnection().getUniqueId()) == 0) {
-            // because something can go wrong and proxy somehow does not update player data correctly on shutdown
-            // we have to check proxy if it has the player
-            String proxyId = getProxyFor(event.getConnection().getUniqueId());
-            if (proxyId == null || !plugin.proxyDataManager().isPlayerTrulyOnProxy(proxyId, event.getConnection().getUniqueId())) {
-                event.completeIntent((Plugin) plugin);
-            } else {
-                if (plugin.configuration().kickWhenOnline()) {
-                    kickPlayer(event.getConnection().getUniqueId(), plugin.langConfiguration().messages().loggedInFromOtherLocation());
-                    // wait 3 seconds before releasing the event
-                    plugin.executeAsyncAfter(() -> event.completeIntent((Plugin) plugin), TimeUnit.SECONDS, 3);
+        plugin.executeAsync(() -> {
+            try {
+                // check if online
+                LoginState loginState = checkLoginState(event.getConnection().getUniqueId());
+                if (!loginState.onlineElsewhere()) {
+                    event.completeIntent((Plugin) plugin);
+                } else if (plugin.configuration().kickWhenOnline()) {
+                    // release the event once the other proxy reports the old session is gone
+                    kickAndAwait(event.getConnection().getUniqueId(), loginState.proxy(), plugin.langConfiguration().messages().loggedInFromOtherLocation()).whenComplete((ignored, throwable) -> event.completeIntent((Plugin) plugin));
                 } else {
                     event.setCancelled(true);
                     event.setCancelReason(BungeeComponentSerializer.get().serialize(plugin.langConfiguration().messages().alreadyLoggedIn()));
                     event.completeIntent((Plugin) plugin);
                 }
+            } catch (Exception e) {
+                plugin.logFatal("unable to check if " + event.getConnection().getUniqueId() + " is online", e);
+                event.completeIntent((Plugin) plugin);
             }
-        } else {
-            event.completeIntent((Plugin) plugin);
-        }
+        });
 
     }
 
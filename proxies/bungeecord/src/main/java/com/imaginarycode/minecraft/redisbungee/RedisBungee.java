@@ -68,6 +68,7 @@ public class RedisBungee extends Plugin implements RedisBungeePlugin<ProxiedPlay
     private BungeePlayerDataManager playerDataManager;
     private ScheduledTask heartbeatTask;
     private ScheduledTask cleanupTask;
+    private ScheduledTask serversReconcileTask;
     private Summoner<?> summoner;
     private UUIDTranslator uuidTranslator;
     private RedisBungeeConfiguration configuration;
@@ -240,6 +241,8 @@ public class RedisBungee extends Plugin implements RedisBungeePlugin<ProxiedPlay
         this.heartbeatTask = getProxy().getScheduler().schedule(this, () -> this.proxyDataManager.publishHeartbeat(), 0, 1, TimeUnit.SECONDS);
         // cleanup
         this.cleanupTask = getProxy().getScheduler().schedule(this, () -> this.proxyDataManager.correctionTask(), 0, 60, TimeUnit.SECONDS);
+        // servers to players index
+        this.serversReconcileTask = getProxy().getScheduler().schedule(this, () -> this.playerDataManager.reconcileServersToPlayers(), 0, 10, TimeUnit.MINUTES);
         // init the http lib
         httpClient = new OkHttpClient();
         Dispatcher dispatcher = new Dispatcher(getExecutorService());
@@ -273,9 +276,17 @@ public class RedisBungee extends Plugin implements RedisBungeePlugin<ProxiedPlay
         if (this.cleanupTask != null) {
             this.cleanupTask.cancel();
         }
+        if (this.serversReconcileTask != null) {
+            this.serversReconcileTask.cancel();
+        }
         if (heartbeatTask != null) {
             heartbeatTask.cancel();
         }
+        if (this.api != null) this.api.async().close();
+        if (this.uuidTranslator != null) this.uuidTranslator.close();
+
+        if (this.playerDataManager != null) this.playerDataManager.close();
+
         try {
             this.proxyDataManager.close();
         } catch (Exception e) {
@@ -86,6 +86,7 @@ public class RedisBungeeVelocityPlugin implements RedisBungeePlugin<Player>, Con
 
     private ScheduledTask cleanUpTask;
     private ScheduledTask heartbeatTask;
+    private ScheduledTask serversReconcileTask;
 
     public static final List<ChannelIdentifier> IDENTIFIERS = List.of(
             MinecraftChannelIdentifier.create("legacy", "redisbungee"),
@@ -272,6 +273,7 @@ public class RedisBungeeVelocityPlugin implements RedisBungeePlugin<Player>, Con
         // heartbeat and clean up
         this.heartbeatTask = server.getScheduler().buildTask(this, this.proxyDataManager::publishHeartbeat).repeat(Duration.ofSeconds(1)).schedule();
         this.cleanUpTask = server.getScheduler().buildTask(this, this.proxyDataManager::correctionTask).repeat(Duration.ofSeconds(60)).schedule();
+        this.serversReconcileTask = server.getScheduler().buildTask(this, this.playerDataManager::reconcileServersToPlayers).repeat(Duration.ofMinutes(10)).schedule();
 
         server.getEventManager().register(this, this.playerDataManager);
         server.getEventManager().register(this, new RedisBungeeListener(this));
@@ -297,11 +299,19 @@ public class RedisBungeeVelocityPlugin implements RedisBungeePlugin<Player>, Con
         if (cleanUpTask != null) {
             cleanUpTask.cancel();
         }
+        if (serversReconcileTask != null) {
+            serversReconcileTask.cancel();
+        }
         if (heartbeatTask != null) {
             heartbeatTask.cancel();
         }
 
 
+        this.api.async().close();
+        if (this.uuidTranslator != null) this.uuidTranslator.close();
+
+        if (this.playerDataManager != null) this.playerDataManager.close();
+
         try {
             this.proxyDataManager.close();
             this.jedisSummoner.close();
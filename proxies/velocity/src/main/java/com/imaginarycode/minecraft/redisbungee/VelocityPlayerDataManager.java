@@ -27,7 +27,6 @@ import com.velocitypowered.api.event.player.ServerConnectedEvent;
 import com.velocitypowered.api.proxy.Player;
 import net.kyori.adventure.text.Component;
 
-import java.util.concurrent.TimeUnit;
 
 public class VelocityPlayerDataManager extends PlayerDataManager<Player, PostLoginEvent, DisconnectEvent, PubSubMessageEvent, PlayerChangedServerNetworkEvent, PlayerLeftNetworkEvent, ServerConnectedEvent, PlayerJoinedNetworkEvent> {
     public VelocityPlayerDataManager(RedisBungeePlugin<Player> plugin) {
@@ -73,26 +72,25 @@ public class VelocityPlayerDataManager extends PlayerDataManager<Player, PostLog
 
     @Subscribe
     public void onLoginEvent(LoginEvent event, Continuation continuation) {
-        // check if online
-        if (getLastOnline(event.getPlayer().getUniqueId()) == 0) {
-            // because something can go wrong and proxy somehow does not update player data correctly on shutdown
-            // we have to check proxy if it has the player
-            String proxyId = getProxyFor(event.getPlayer().getUniqueId());
-            if (proxyId == null || !plugin.proxyDataManager().isPlayerTrulyOnProxy(proxyId, event.getPlayer().getUniqueId())) {
-                continuation.resume();
-            } else {
-                if (plugin.configuration().kickWhenOnline()) {
-                    kickPlayer(event.getPlayer().getUniqueId(), plugin.langConfiguration().messages().loggedInFromOtherLocation());
-                    // wait 3 seconds before releasing the event
-                    plugin.executeAsyncAfter(continuation::resume, TimeUnit.SECONDS, 3);
+        plugin.executeAsync(() -> {
+            try {
+                // check if online
+                LoginState loginState = checkLoginState(event.getPlayer().getUniqueId());
+                if (!loginState.onlineElsewhere()) {
+                    continuation.resume();
+                } else if (plugin.configuration().kickWhenOnline()) {
+                    // release the event once the other proxy reports the old session is gone
+                    kickAndAwait(event.getPlayer().getUniqueId(), loginState.proxy(), plugin.langConfiguration().messages().loggedInFromOtherLocation()).whenComplete((ignored, throwable) -> continuation.resume());
                 } else {
                     event.setResult(ResultedEvent.ComponentResult.denied(plugin.langConfiguration().messages().alreadyLoggedIn()));
                     continuation.resume();
                 }
+            } catch (Exception e) {
+                // let the login through like on bungeecord, a redis failure should not lock players out
+                plugin.logFatal("unable to check if " + event.getPlayer().getUniqueId() + " is online", e);
+                continuation.resume();
             }
-        } else {
-            continuation.resume();
-        }
+        });
     }
 
     @Override